@@ -0,0 +1,107 @@
+package com.valhallagame.characterserviceserver.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.valhallagame.characterserviceserver.accesslog.AccessLog;
+import com.valhallagame.characterserviceserver.model.Character;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost of a request on the request thread, before and after the {@link AccessLog}: {@code perRequestInfoLog}
+ * is what a write did before, a synchronous INFO line in the controller and one with the whole {@link Character} in
+ * the service; {@code sampledRead} and {@code write} hand the request to the access log. Everything is formatted
+ * with the console pattern into a stream that throws it away. Run with {@code -prof gc} to compare the allocation
+ * per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessLogBenchmark {
+
+	private static final org.slf4j.Logger controllerLogger = LoggerFactory.getLogger("benchmark.controller");
+
+	private static final org.slf4j.Logger serviceLogger = LoggerFactory.getLogger("benchmark.service");
+
+	private static final String READ_ENDPOINT = "/v1/character/get-character";
+
+	private static final String WRITE_ENDPOINT = "/v1/character/equip-item";
+
+	private AccessLog accessLog;
+
+	private Character character;
+
+	@Setup
+	public void setUp() {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p [%t] %-40.40logger{39} : %m %mdc%n");
+		encoder.start();
+
+		OutputStreamAppender<ILoggingEvent> discarding = new OutputStreamAppender<>();
+		discarding.setContext(context);
+		discarding.setName("DISCARDING");
+		discarding.setEncoder(encoder);
+		discarding.setOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		discarding.start();
+
+		Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+		root.detachAndStopAllAppenders();
+		root.addAppender(discarding);
+		root.setLevel(Level.INFO);
+
+		accessLog = new AccessLog(8192, 0.01, new String[] { READ_ENDPOINT });
+		accessLog.start();
+		character = BenchmarkFixtures.character("benchmark");
+	}
+
+	@TearDown
+	public void tearDown() {
+		accessLog.stop();
+	}
+
+	@Benchmark
+	public void perRequestInfoLog() {
+		controllerLogger.info("Equip Item called with {}", character.getCharacterName());
+		serviceLogger.info("Saving character: {}", character);
+	}
+
+	@Benchmark
+	public void sampledRead() {
+		accessLog.record(READ_ENDPOINT, "benchmark", 200, 1000);
+	}
+
+	@Benchmark
+	public void write() {
+		accessLog.record(WRITE_ENDPOINT, "benchmark", 200, 1000);
+	}
+}
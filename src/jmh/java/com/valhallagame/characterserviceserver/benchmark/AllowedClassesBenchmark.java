@@ -0,0 +1,43 @@
+package com.valhallagame.characterserviceserver.benchmark;
+
+import com.valhallagame.characterserviceserver.model.AllowedClasses;
+import com.valhallagame.characterserviceserver.service.CharacterValidator;
+import com.valhallagame.characterserviceserver.service.CreationError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AllowedClasses#has} and the full creation check for a valid class and for one that is not, which is
+ * the path that used to throw.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllowedClassesBenchmark {
+
+	@Param({ "warrior", "paladin" })
+	private String startingClass;
+
+	@Benchmark
+	public boolean has() {
+		return AllowedClasses.has(startingClass);
+	}
+
+	@Benchmark
+	public CreationError validateCreation() {
+		return CharacterValidator.validateCreation("Ragnhild_the-Bold", startingClass);
+	}
+}
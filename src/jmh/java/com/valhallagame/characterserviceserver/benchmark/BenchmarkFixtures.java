@@ -0,0 +1,79 @@
+package com.valhallagame.characterserviceserver.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.valhallagame.characterserviceclient.message.EquippedItemParameter;
+import com.valhallagame.characterserviceserver.metrics.LatencyRegistry;
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.characterserviceserver.rabbitmq.CharacterEventPublisher;
+import com.valhallagame.characterserviceserver.repository.CharacterProfileRepository;
+import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import com.valhallagame.characterserviceserver.service.CharacterCache;
+import com.valhallagame.characterserviceserver.service.CharacterNameIndex;
+import com.valhallagame.characterserviceserver.service.CharacterService;
+import com.valhallagame.characterserviceserver.service.RecentWrites;
+import com.valhallagame.characterserviceserver.template.ClassTemplateRegistry;
+import com.valhallagame.currencyserviceclient.CurrencyServiceClient;
+import com.valhallagame.recipeserviceclient.RecipeServiceClient;
+import com.valhallagame.traitserviceclient.TraitServiceClient;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds a {@link CharacterService} wired to in-memory stand-ins: the repository and the trait, currency and
+ * recipe clients are Mockito stubs that return immediately, everything else is the real thing.
+ */
+final class BenchmarkFixtures {
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private BenchmarkFixtures() {
+	}
+
+	static CharacterService characterService(ExecutorService provisioningExecutor) throws IOException {
+		CharacterRepository characterRepository = mock(CharacterRepository.class);
+		when(characterRepository.insertCharacter(any(Character.class)))
+				.thenAnswer(invocation -> invocation.getArguments()[0]);
+
+		ClassTemplateRegistry classTemplates = new ClassTemplateRegistry(new DefaultResourceLoader(),
+				"classpath:class-templates.json");
+		classTemplates.load();
+
+		return new CharacterService(characterRepository, mock(CharacterEventPublisher.class),
+				mock(TraitServiceClient.class), mock(CurrencyServiceClient.class), mock(RecipeServiceClient.class),
+				provisioningExecutor, classTemplates, new CharacterCache(10000, 60000),
+				mock(CharacterNameIndex.class), mock(CharacterProfileRepository.class), new RecentWrites(10000, 5000),
+				new LatencyRegistry());
+	}
+
+	static Character character(String characterName) {
+		Character character = new Character();
+		character.setCharacterName(characterName);
+		character.setDisplayCharacterName(characterName);
+		character.setOwnerUsername("benchmark");
+		for (ItemSlot slot : ItemSlot.slots()) {
+			slot.unequip(character);
+		}
+		return character;
+	}
+
+	/**
+	 * Built the way the controller gets it, from JSON, so the benchmark does not depend on how the client
+	 * library constructs its parameters.
+	 */
+	static EquippedItemParameter equippedItem(String itemSlot, String item, String metaData) {
+		Map<String, Object> json = new HashMap<>();
+		json.put("itemSlot", itemSlot);
+		json.put("item", item);
+		json.put("metaData", metaData);
+		return objectMapper.convertValue(json, EquippedItemParameter.class);
+	}
+}
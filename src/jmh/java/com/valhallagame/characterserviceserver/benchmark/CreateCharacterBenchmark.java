@@ -0,0 +1,61 @@
+package com.valhallagame.characterserviceserver.benchmark;
+
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.service.CharacterService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything {@link CharacterService#createCharacter} does around the downstream calls: template lookup, gear,
+ * the provisioning pipeline and its thread hand-offs, and the write path. The clients and the repository answer
+ * immediately, so this is the service's own overhead per creation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateCharacterBenchmark {
+
+	private ExecutorService executor;
+
+	private CharacterService characterService;
+
+	private long counter;
+
+	@Setup
+	public void setUp() throws IOException {
+		executor = Executors.newFixedThreadPool(16);
+		characterService = BenchmarkFixtures.characterService(executor);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public Character createWarrior() throws IOException {
+		return characterService.createCharacter("benchmark", "Warrior" + counter++, "warrior");
+	}
+
+	@Benchmark
+	public Character createDebug() throws IOException {
+		return characterService.createCharacter("benchmark", "Debug" + counter++, "debug");
+	}
+}
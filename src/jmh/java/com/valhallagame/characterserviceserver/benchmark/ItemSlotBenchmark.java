@@ -0,0 +1,75 @@
+package com.valhallagame.characterserviceserver.benchmark;
+
+import com.valhallagame.characterserviceclient.message.EquippedItemParameter;
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.service.CharacterService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slot dispatch of {@link CharacterService#equipCharacter} and {@link CharacterService#unequipCharacter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemSlotBenchmark {
+
+	private ExecutorService executor;
+
+	private CharacterService characterService;
+
+	private Character character;
+
+	private EquippedItemParameter firstSlot;
+
+	private EquippedItemParameter lastSlot;
+
+	@Setup
+	public void setUp() throws IOException {
+		executor = Executors.newSingleThreadExecutor();
+		characterService = BenchmarkFixtures.characterService(executor);
+		character = BenchmarkFixtures.character("benchmark");
+		firstSlot = BenchmarkFixtures.equippedItem("MAINHAND", "Sword", "{\"level\":1}");
+		lastSlot = BenchmarkFixtures.equippedItem("FEET", "LeatherBoots", null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public Character equipFirstSlot() {
+		characterService.equipCharacter(character, firstSlot);
+		return character;
+	}
+
+	@Benchmark
+	public Character equipLastSlot() {
+		characterService.equipCharacter(character, lastSlot);
+		return character;
+	}
+
+	@Benchmark
+	public Character unequip() {
+		characterService.unequipCharacter(character, "FEET");
+		return character;
+	}
+}
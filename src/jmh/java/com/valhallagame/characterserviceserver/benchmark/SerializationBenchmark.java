@@ -0,0 +1,85 @@
+package com.valhallagame.characterserviceserver.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.common.JS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a /get-character response costs: building the {@link JS#message} tree and encoding it, against writing
+ * the entity straight to JSON or Smile as the read endpoints now do. The encoded sizes are printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ObjectMapper smileMapper = new ObjectMapper(
+			new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES));
+
+	private Character character;
+
+	private JsonNode body;
+
+	@Setup
+	public void setUp() {
+		character = BenchmarkFixtures.character("benchmark");
+		character.setMainhandArmament("Sword");
+		character.setMainhandArmamentMetaData("{\"level\":1}");
+		body = JS.message(HttpStatus.OK, character).getBody();
+		try {
+			System.out.printf("%nEncoded sizes: message tree %d bytes, direct JSON %d bytes, Smile %d bytes%n",
+					objectMapper.writeValueAsBytes(body).length, objectMapper.writeValueAsBytes(character).length,
+					smileMapper.writeValueAsBytes(character).length);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Benchmark
+	public ResponseEntity<JsonNode> message() {
+		return JS.message(HttpStatus.OK, character);
+	}
+
+	@Benchmark
+	public byte[] encode() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(body);
+	}
+
+	@Benchmark
+	public byte[] messageAndEncode() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(JS.message(HttpStatus.OK, character).getBody());
+	}
+
+	@Benchmark
+	public byte[] directJson() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(character);
+	}
+
+	@Benchmark
+	public byte[] directSmile() throws JsonProcessingException {
+		return smileMapper.writeValueAsBytes(character);
+	}
+}
@@ -0,0 +1,262 @@
+package com.valhallagame.characterserviceserver.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.valhallagame.characterserviceserver.metrics.LatencyHistogram;
+import com.valhallagame.common.DefaultServicePortMappings;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a mix of logins, gear swaps and character creation bursts at a locally booted service and reports
+ * throughput and latency percentiles per endpoint. Configured with system properties, e.g.
+ * {@code mvn -Ploadtest verify -Dloadtest.concurrency=128 -Dloadtest.stub-latency-ms=50}.
+ */
+public class LoadTest {
+
+	private static final MediaType JSON = MediaType.parse("application/json");
+
+	private static final String BASE_URL = "http://localhost:" + DefaultServicePortMappings.CHARACTER_SERVICE_PORT;
+
+	private static final String LOGIN = "/v1/character/get-selected-character";
+
+	private static final String EQUIP = "/v1/character/equip-item";
+
+	private static final String CREATE = "/v1/character/create-character";
+
+	private static final String[] SLOTS = { "MAINHAND", "OFFHAND", "HEAD", "CHEST", "HANDS", "LEGS", "FEET" };
+
+	// A fixed set, so only the first equips hand out item ids
+	private static final String[] ITEMS = { "SWORD", "HAND_AXE", "LONGSWORD", "DAGGER", "WARHAMMER", "GREATAXE",
+			"SMALL_SHIELD", "MEDIUM_SHIELD", "LARGE_SHIELD", "TORCH" };
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final OkHttpClient client;
+
+	private final int users;
+
+	private final int concurrency;
+
+	private final long warmupSeconds;
+
+	private final long durationSeconds;
+
+	private final int loginWeight;
+
+	private final int equipWeight;
+
+	private final int createWeight;
+
+	private final int burstSize;
+
+	private final long burstIntervalSeconds;
+
+	private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+
+	private final AtomicLong createdCharacters = new AtomicLong();
+
+	private volatile boolean measuring;
+
+	private LoadTest() {
+		users = Integer.getInteger("loadtest.users", 200);
+		concurrency = Integer.getInteger("loadtest.concurrency", 64);
+		warmupSeconds = Long.getLong("loadtest.warmup-seconds", 10);
+		durationSeconds = Long.getLong("loadtest.duration-seconds", 60);
+		loginWeight = Integer.getInteger("loadtest.mix.login", 80);
+		equipWeight = Integer.getInteger("loadtest.mix.equip", 18);
+		createWeight = Integer.getInteger("loadtest.mix.create", 2);
+		burstSize = Integer.getInteger("loadtest.burst.size", 50);
+		burstIntervalSeconds = Long.getLong("loadtest.burst.interval-seconds", 20);
+		client = new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(concurrency + burstSize, 5, TimeUnit.MINUTES))
+				.readTimeout(60, TimeUnit.SECONDS)
+				.build();
+		for (String endpoint : new String[] { LOGIN, EQUIP, CREATE }) {
+			latencies.put(endpoint, new LatencyHistogram());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		long stubLatencyMs = Long.getLong("loadtest.stub-latency-ms", 20);
+		long stubJitterMs = Long.getLong("loadtest.stub-jitter-ms", 10);
+		String stubBody = System.getProperty("loadtest.stub-body", "{}");
+		int shards = Integer.getInteger("loadtest.shards", 0);
+		try (LoadTestEnvironment environment = new LoadTestEnvironment(stubLatencyMs, stubJitterMs, stubBody, shards)) {
+			LoadTest loadTest = new LoadTest();
+			loadTest.seed();
+			loadTest.run();
+			loadTest.report(environment);
+		}
+		System.exit(0);
+	}
+
+	private void seed() throws InterruptedException {
+		System.out.printf("Seeding %d users%n", users);
+		ExecutorService seeders = Executors.newFixedThreadPool(Math.min(concurrency, 16));
+		for (int user = 0; user < users; user++) {
+			int index = user;
+			seeders.execute(() -> call(CREATE, createBody(username(index), "Seed" + index)));
+		}
+		seeders.shutdown();
+		seeders.awaitTermination(10, TimeUnit.MINUTES);
+	}
+
+	private void run() throws InterruptedException {
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+		System.out.printf("Running %d workers for %ds after %ds of warm-up%n", concurrency, durationSeconds,
+				warmupSeconds);
+
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			workers.execute(() -> {
+				while (System.nanoTime() < end) {
+					measuring = System.nanoTime() >= measureFrom;
+					nextOperation();
+				}
+			});
+		}
+
+		ExecutorService bursts = Executors.newFixedThreadPool(Math.max(burstSize, 1));
+		long nextBurst = start + TimeUnit.SECONDS.toNanos(burstIntervalSeconds);
+		while (System.nanoTime() < end) {
+			if (burstSize > 0 && System.nanoTime() >= nextBurst) {
+				for (int i = 0; i < burstSize; i++) {
+					bursts.execute(this::create);
+				}
+				nextBurst += TimeUnit.SECONDS.toNanos(burstIntervalSeconds);
+			}
+			Thread.sleep(100);
+		}
+		workers.shutdown();
+		bursts.shutdown();
+		workers.awaitTermination(1, TimeUnit.MINUTES);
+		bursts.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	private void nextOperation() {
+		int roll = ThreadLocalRandom.current().nextInt(loginWeight + equipWeight + createWeight);
+		if (roll < loginWeight) {
+			Map<String, Object> body = new HashMap<>();
+			body.put("username", username(randomUser()));
+			call(LOGIN, body);
+		} else if (roll < loginWeight + equipWeight) {
+			Map<String, Object> item = new HashMap<>();
+			item.put("itemSlot", SLOTS[ThreadLocalRandom.current().nextInt(SLOTS.length)]);
+			item.put("item", ITEMS[ThreadLocalRandom.current().nextInt(ITEMS.length)]);
+			item.put("metaData", null);
+			Map<String, Object> body = new HashMap<>();
+			body.put("characterName", "seed" + randomUser());
+			body.put("itemToEquip", item);
+			call(EQUIP, body);
+		} else {
+			create();
+		}
+	}
+
+	private void create() {
+		long index = createdCharacters.incrementAndGet();
+		call(CREATE, createBody(username(randomUser()), "Load" + index));
+	}
+
+	private void call(String endpoint, Map<String, Object> body) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Request request = new Request.Builder()
+					.url(BASE_URL + endpoint)
+					.post(RequestBody.create(JSON, objectMapper.writeValueAsBytes(body)))
+					.build();
+			try (Response response = client.newCall(request).execute()) {
+				failed = response.code() >= 500;
+			}
+		} catch (IOException e) {
+			failed = true;
+		} finally {
+			if (measuring) {
+				latencies.get(endpoint).record(System.nanoTime() - start, failed);
+			}
+		}
+	}
+
+	private void report(LoadTestEnvironment environment) throws IOException {
+		Map<String, Object> endpoints = new LinkedHashMap<>();
+		System.out.println();
+		System.out.printf("%-42s %10s %10s %10s %10s %10s %8s%n", "endpoint", "count", "req/s", "p50 us",
+				"p99 us", "p99.9 us", "errors");
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			Map<String, Object> stats = entry.getValue().snapshot();
+			long count = (Long) stats.get("count");
+			System.out.printf("%-42s %10d %10.1f %10d %10d %10d %8d%n", entry.getKey(), count,
+					count / (double) durationSeconds, stats.get("p50Micros"), stats.get("p99Micros"),
+					stats.get("p999Micros"), stats.get("errors"));
+			Map<String, Object> endpoint = new LinkedHashMap<>(stats);
+			endpoint.put("throughput", count / (double) durationSeconds);
+			endpoints.put(entry.getKey(), endpoint);
+		}
+		System.out.println();
+		System.out.println("Stub requests: " + environment.getStubRequests());
+
+		Request request = new Request.Builder().url(BASE_URL + "/metrics/latency").get().build();
+		String serviceLatencies;
+		try (Response response = client.newCall(request).execute()) {
+			serviceLatencies = response.body().string();
+			System.out.println("Service side latencies: " + serviceLatencies);
+		}
+
+		// Kept next to the benchmark results so runs with different settings can be compared
+		String reportFile = System.getProperty("loadtest.report");
+		if (reportFile != null) {
+			Map<String, Object> report = new LinkedHashMap<>();
+			Map<String, String> settings = new TreeMap<>();
+			for (String name : System.getProperties().stringPropertyNames()) {
+				if (name.startsWith("loadtest.") || name.startsWith("character.") || name.startsWith("server.")) {
+					settings.put(name, System.getProperty(name));
+				}
+			}
+			report.put("settings", settings);
+			report.put("endpoints", endpoints);
+			report.put("stubRequests", environment.getStubRequests());
+			report.put("serviceLatencies", objectMapper.readTree(serviceLatencies));
+			File file = new File(reportFile);
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+			System.out.println("Report written to " + file);
+		}
+	}
+
+	private Map<String, Object> createBody(String username, String displayCharacterName) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("username", username);
+		body.put("displayCharacterName", displayCharacterName);
+		body.put("startingClass", "warrior");
+		return body;
+	}
+
+	private int randomUser() {
+		return ThreadLocalRandom.current().nextInt(users);
+	}
+
+	private static String username(int index) {
+		return "loadtest" + index;
+	}
+}
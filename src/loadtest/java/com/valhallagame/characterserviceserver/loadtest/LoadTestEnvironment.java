@@ -0,0 +1,99 @@
+package com.valhallagame.characterserviceserver.loadtest;
+
+import com.opentable.db.postgres.embedded.EmbeddedPostgres;
+import com.valhallagame.characterserviceserver.CharacterApp;
+import com.valhallagame.characterserviceserver.rabbitmq.EmbeddedBroker;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Boots {@link CharacterApp} against an embedded Postgres, an in-JVM AMQP broker and stub trait, currency and
+ * recipe services. Any {@code character.*} system property still reaches the application, so tuning flags can
+ * be compared run against run. With shards the first Postgres is the directory and every shard gets its own.
+ */
+class LoadTestEnvironment implements AutoCloseable {
+
+	private final EmbeddedPostgres postgres;
+
+	private final List<EmbeddedPostgres> shards = new ArrayList<>();
+
+	private final EmbeddedBroker broker;
+
+	private final StubService traitService;
+
+	private final StubService currencyService;
+
+	private final StubService recipeService;
+
+	private final ConfigurableApplicationContext application;
+
+	LoadTestEnvironment(long stubLatencyMs, long stubJitterMs, String stubBody, int shardCount) throws Exception {
+		postgres = EmbeddedPostgres.start();
+		broker = new EmbeddedBroker();
+		traitService = new StubService(stubLatencyMs, stubJitterMs, stubBody);
+		currencyService = new StubService(stubLatencyMs, stubJitterMs, stubBody);
+		recipeService = new StubService(stubLatencyMs, stubJitterMs, stubBody);
+
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+		properties.put("spring.datasource.username", "postgres");
+		properties.put("spring.datasource.password", "");
+		properties.put("spring.rabbitmq.host", "localhost");
+		properties.put("spring.rabbitmq.port", broker.getPort());
+		properties.put("spring.rabbitmq.username", "guest");
+		properties.put("spring.rabbitmq.password", "guest");
+		properties.put("character.services.trait-url", traitService.getUrl());
+		properties.put("character.services.currency-url", currencyService.getUrl());
+		properties.put("character.services.recipe-url", recipeService.getUrl());
+		properties.put("logging.config", "classpath:dev-logback.xml");
+		if (shardCount > 0) {
+			// The first database becomes the directory, each shard gets a database of its own
+			StringJoiner shardIds = new StringJoiner(",");
+			for (int i = 0; i < shardCount; i++) {
+				EmbeddedPostgres shard = EmbeddedPostgres.start();
+				shards.add(shard);
+				String shardId = "shard" + i;
+				shardIds.add(shardId);
+				properties.put("character.sharding.shard." + shardId + ".url", shard.getJdbcUrl("postgres", "postgres"));
+			}
+			properties.put("character.sharding.enabled", true);
+			properties.put("character.sharding.shards", shardIds);
+		}
+
+		// As arguments, not default properties, so they win over application-development.properties
+		String[] args = properties.entrySet().stream()
+				.map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+				.toArray(String[]::new);
+		application = new SpringApplicationBuilder(CharacterApp.class)
+				.profiles("development")
+				.run(args);
+	}
+
+	Map<String, Long> getStubRequests() {
+		Map<String, Long> requests = new HashMap<>();
+		requests.put("trait", traitService.getRequests());
+		requests.put("currency", currencyService.getRequests());
+		requests.put("recipe", recipeService.getRequests());
+		return requests;
+	}
+
+	@Override
+	public void close() throws Exception {
+		application.close();
+		recipeService.close();
+		currencyService.close();
+		traitService.close();
+		broker.close();
+		for (EmbeddedPostgres shard : shards) {
+			shard.close();
+		}
+		postgres.close();
+	}
+}
@@ -0,0 +1,51 @@
+package com.valhallagame.characterserviceserver.loadtest;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for a peer service: answers every request with the same body after a configurable delay.
+ */
+class StubService implements AutoCloseable {
+
+	private final MockWebServer server = new MockWebServer();
+
+	private final LongAdder requests = new LongAdder();
+
+	StubService(long latencyMs, long jitterMs, String body) throws IOException {
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				requests.increment();
+				long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+				return new MockResponse()
+						.setResponseCode(200)
+						.setHeader("Content-Type", "application/json")
+						.setBody(body)
+						.setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+			}
+		});
+		server.start();
+	}
+
+	String getUrl() {
+		String url = server.url("/").toString();
+		return url.substring(0, url.length() - 1);
+	}
+
+	long getRequests() {
+		return requests.sum();
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.shutdown();
+	}
+}
@@ -10,10 +10,12 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.servlet.Filter;
 
 @SpringBootApplication
+@EnableScheduling
 public class CharacterApp {
 	private static final Logger logger = LoggerFactory.getLogger(CharacterApp.class);
 
@@ -0,0 +1,174 @@
+package com.valhallagame.characterserviceserver.accesslog;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Structured access log written to the {@code access} logger, one event per sampled request with the endpoint,
+ * character, status and latency as MDC fields. The logback files are shared between services, so the logger is
+ * given its own {@link AsyncAppender} here, in front of the root logger's appender: request threads only put the
+ * event on its bounded queue and the appender's worker, which blocks on that queue while idle, formats and writes
+ * it. When the queue is full events are dropped and counted rather than slowing requests down. Successful requests
+ * to read endpoints are sampled, everything else is always logged.
+ */
+@Component
+public class AccessLog {
+	private static final Logger accessLogger = LoggerFactory.getLogger("access");
+
+	private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+
+	private static final String CHARACTER_ATTRIBUTE = AccessLog.class.getName() + ".character";
+
+	private static final String APPENDER_NAME = "ACCESS_ASYNC";
+
+	private final int bufferSize;
+
+	private final Set<String> readEndpoints;
+
+	private final double readSampleRate;
+
+	private CountingAsyncAppender appender;
+
+	@Autowired
+	public AccessLog(@Value("${character.access-log.buffer-size:8192}") int bufferSize,
+					 @Value("${character.access-log.read-sample-rate:0.01}") double readSampleRate,
+					 @Value("${character.access-log.read-endpoints:/v1/character/get-character,"
+							 + "/v1/character/get-owned-character,/v1/character/get-characters-batch,"
+							 + "/v1/character/get-all-characters,/v1/character/character-available,"
+							 + "/v1/character/get-selected-character,/v1/character/get-character-profile}")
+							 String[] readEndpoints) {
+		this.bufferSize = bufferSize;
+		this.readSampleRate = readSampleRate;
+		this.readEndpoints = new HashSet<>(Arrays.asList(readEndpoints));
+	}
+
+	/**
+	 * Names the character the current request is about, for its access log entry.
+	 */
+	public static void tagCharacter(String characterName) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(CHARACTER_ATTRIBUTE, characterName, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	public static String taggedCharacter(HttpServletRequest request) {
+		return (String) request.getAttribute(CHARACTER_ATTRIBUTE);
+	}
+
+	/**
+	 * Puts the async appender between the {@code access} logger and the appender the root logger writes to, so
+	 * access events end up in the same place as everything else.
+	 */
+	@PostConstruct
+	public void start() {
+		ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+		if (!(loggerFactory instanceof LoggerContext)) {
+			logger.warn("Not logging through logback, access log events are written synchronously");
+			return;
+		}
+		LoggerContext context = (LoggerContext) loggerFactory;
+		Iterator<Appender<ILoggingEvent>> rootAppenders = context.getLogger(Logger.ROOT_LOGGER_NAME)
+				.iteratorForAppenders();
+		if (!rootAppenders.hasNext()) {
+			logger.warn("The root logger has no appender, access log events are not written");
+			return;
+		}
+
+		appender = new CountingAsyncAppender();
+		appender.setContext(context);
+		appender.setName(APPENDER_NAME);
+		appender.setQueueSize(bufferSize);
+		// Never discard by level and never block, a full queue drops the event
+		appender.setDiscardingThreshold(0);
+		appender.setNeverBlock(true);
+		appender.setIncludeCallerData(false);
+		// An AsyncAppender takes a single appender
+		appender.addAppender(rootAppenders.next());
+		appender.start();
+
+		ch.qos.logback.classic.Logger access = context.getLogger(accessLogger.getName());
+		access.addAppender(appender);
+		access.setAdditive(false);
+	}
+
+	/**
+	 * Writes out what is still queued, for up to the appender's max flush time.
+	 */
+	@PreDestroy
+	public void stop() {
+		if (appender != null) {
+			ch.qos.logback.classic.Logger access = (ch.qos.logback.classic.Logger) accessLogger;
+			access.setAdditive(true);
+			access.detachAppender(appender);
+			appender.stop();
+		}
+	}
+
+	public void record(String endpoint, String characterName, int status, long latencyNanos) {
+		if (status < 400 && readEndpoints.contains(endpoint)
+				&& ThreadLocalRandom.current().nextDouble() >= readSampleRate) {
+			return;
+		}
+
+		// The appender copies the MDC into the event before queueing it
+		MDC.put("endpoint", endpoint);
+		if (characterName != null) {
+			MDC.put("character", characterName);
+		}
+		MDC.put("status", Integer.toString(status));
+		MDC.put("latencyMicros", Long.toString(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+		MDC.put("requestTimestamp", Long.toString(System.currentTimeMillis()));
+		try {
+			accessLogger.info("access");
+		} finally {
+			// Only our own fields, the request thread may have others
+			MDC.remove("endpoint");
+			MDC.remove("character");
+			MDC.remove("status");
+			MDC.remove("latencyMicros");
+			MDC.remove("requestTimestamp");
+		}
+	}
+
+	public long getDropped() {
+		return appender == null ? 0 : appender.dropped.sum();
+	}
+
+	/**
+	 * Counts the events a full queue drops, {@link AsyncAppender} only drops them.
+	 */
+	private static class CountingAsyncAppender extends AsyncAppender {
+		private final LongAdder dropped = new LongAdder();
+
+		@Override
+		protected void append(ILoggingEvent event) {
+			if (isStarted() && getRemainingCapacity() == 0) {
+				dropped.increment();
+			}
+			super.append(event);
+		}
+	}
+}
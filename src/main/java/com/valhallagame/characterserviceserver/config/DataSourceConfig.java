@@ -0,0 +1,37 @@
+package com.valhallagame.characterserviceserver.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+	@Bean
+	public DataSourcePoolRegistry dataSourcePoolRegistry() {
+		return new DataSourcePoolRegistry();
+	}
+
+	/**
+	 * Wraps the pooled data source in a {@link TimedDataSource} so connection wait times show up on /metrics.
+	 */
+	@Bean
+	public static BeanPostProcessor timedDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				return bean;
+			}
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource && !(bean instanceof TimedDataSource)) {
+					return new TimedDataSource((DataSource) bean);
+				}
+				return bean;
+			}
+		};
+	}
+}
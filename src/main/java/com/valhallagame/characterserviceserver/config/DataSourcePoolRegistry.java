@@ -0,0 +1,34 @@
+package com.valhallagame.characterserviceserver.config;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The pools behind the routing data sources, each in its own {@link TimedDataSource}. The wrapper around the
+ * data source the application sees only has the combined wait, this is where a single shard or replica pool
+ * running dry shows up.
+ */
+public class DataSourcePoolRegistry {
+
+	private final Map<String, TimedDataSource> pools = new ConcurrentHashMap<>();
+
+	DataSource register(String name, DataSource pool) {
+		TimedDataSource timed = new TimedDataSource(pool);
+		pools.put(name, timed);
+		return timed;
+	}
+
+	public boolean isEmpty() {
+		return pools.isEmpty();
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		pools.entrySet().stream()
+				.sorted(Map.Entry.comparingByKey())
+				.forEach(entry -> stats.put(entry.getKey(), entry.getValue().getStats()));
+		return stats;
+	}
+}
@@ -0,0 +1,63 @@
+package com.valhallagame.characterserviceserver.config;
+
+import com.valhallagame.characterserviceserver.replica.Replica;
+import com.valhallagame.characterserviceserver.replica.ReplicaLagMonitor;
+import com.valhallagame.characterserviceserver.replica.ReplicaRoutingDataSource;
+import org.springframework.boot.bind.PropertySourcesPropertyValues;
+import org.springframework.boot.bind.RelaxedDataBinder;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the pools behind the routing data sources. They are not beans, so instead of the timing wrapper around
+ * the data source the application sees each gets its own, registered under a name for /metrics.
+ */
+final class DataSourcePools {
+
+	private DataSourcePools() {
+	}
+
+	/**
+	 * A pool with the {@code spring.datasource.tomcat} settings for the given database.
+	 */
+	static DataSource pool(String name, String url, String username, String password,
+						   ConfigurableEnvironment environment, DataSourcePoolRegistry registry) {
+		org.apache.tomcat.jdbc.pool.DataSource pool = new org.apache.tomcat.jdbc.pool.DataSource();
+		new RelaxedDataBinder(pool, "spring.datasource.tomcat")
+				.bind(new PropertySourcesPropertyValues(environment.getPropertySources()));
+		pool.setDriverClassName("org.postgresql.Driver");
+		pool.setUrl(url);
+		pool.setUsername(username);
+		pool.setPassword(password);
+		return registry.register(name, pool);
+	}
+
+	/**
+	 * The primary on its own if there are no replica urls, otherwise the primary with its replicas, watched by
+	 * the lag monitor.
+	 */
+	static DataSource withReplicas(String name, DataSource primary, String[] replicaUrls, String username,
+								   String password, ConfigurableEnvironment environment, ReplicaLagMonitor monitor,
+								   DataSourcePoolRegistry registry) {
+		List<Replica> replicas = new ArrayList<>();
+		for (String replicaUrl : replicaUrls) {
+			if (!replicaUrl.trim().isEmpty()) {
+				// Not named by url, which may carry credentials
+				String replicaName = name + ".replica" + replicas.size();
+				replicas.add(new Replica(replicaUrl.trim(),
+						pool(replicaName, replicaUrl.trim(), username, password, environment, registry)));
+			}
+		}
+		if (replicas.isEmpty()) {
+			return primary;
+		}
+
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(name, primary, replicas);
+		routing.afterPropertiesSet();
+		monitor.register(routing);
+		return routing;
+	}
+}
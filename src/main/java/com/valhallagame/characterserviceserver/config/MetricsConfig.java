@@ -0,0 +1,57 @@
+package com.valhallagame.characterserviceserver.config;
+
+import com.valhallagame.characterserviceserver.accesslog.AccessLog;
+import com.valhallagame.characterserviceserver.metrics.EndpointLatencyInterceptor;
+import com.valhallagame.characterserviceserver.metrics.LatencyRegistry;
+import com.valhallagame.characterserviceserver.metrics.RepositoryLatencyInterceptor;
+import com.valhallagame.characterserviceserver.repository.CharacterProfileRepository;
+import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+@Configuration
+public class MetricsConfig extends WebMvcConfigurerAdapter {
+
+	@Autowired
+	private LatencyRegistry latencyRegistry;
+
+	@Autowired
+	private AccessLog accessLog;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new EndpointLatencyInterceptor(latencyRegistry, accessLog)).addPathPatterns("/v1/character/**");
+	}
+
+	/**
+	 * Adds a timing advice to the repository proxies. Static and lazy on the registry so that registering the
+	 * post processor does not pull the rest of the context in early.
+	 */
+	@Bean
+	public static BeanPostProcessor repositoryLatencyPostProcessor(ObjectFactory<LatencyRegistry> latencyRegistry) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				return bean;
+			}
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof Advised
+						&& (bean instanceof CharacterRepository || bean instanceof CharacterProfileRepository)) {
+					String name = bean instanceof CharacterRepository
+							? CharacterRepository.class.getSimpleName()
+							: CharacterProfileRepository.class.getSimpleName();
+					((Advised) bean).addAdvice(0, new RepositoryLatencyInterceptor(latencyRegistry.getObject(), name));
+				}
+				return bean;
+			}
+		};
+	}
+}
@@ -0,0 +1,30 @@
+package com.valhallagame.characterserviceserver.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ProvisioningConfig {
+
+	/**
+	 * Bounded pool for the outbound trait, currency and recipe calls made when a character is created.
+	 * When the queue is full the submitting request thread runs the call itself, which throttles creation
+	 * bursts instead of rejecting them.
+	 */
+	@Bean(name = "provisioningExecutor", destroyMethod = "shutdown")
+	public ExecutorService provisioningExecutor(@Value("${character.provisioning.threads:16}") int threads,
+												@Value("${character.provisioning.queue-size:256}") int queueSize) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize), new CustomizableThreadFactory("provisioning-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
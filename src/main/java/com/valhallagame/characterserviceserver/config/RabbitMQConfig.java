@@ -1,15 +1,27 @@
 package com.valhallagame.characterserviceserver.config;
 
 import com.valhallagame.common.rabbitmq.RabbitMQRouting;
+import com.valhallagame.characterserviceserver.rabbitmq.ProfileEventRouting;
+import com.valhallagame.characterserviceserver.service.CharacterCache;
 import com.valhallagame.common.rabbitmq.RabbitSender;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -22,15 +34,72 @@ public class RabbitMQConfig {
 		return new DirectExchange(RabbitMQRouting.Exchange.CHARACTER.name());
 	}
 
+	// Every node gets its own auto-deleted queue so that all nodes see every change
+	@Bean
+	public Queue characterCacheQueue() {
+		return new AnonymousQueue();
+	}
+
+	@Bean
+	public Binding bindingCharacterCacheDeleted(DirectExchange characterExchange, Queue characterCacheQueue) {
+		return BindingBuilder.bind(characterCacheQueue).to(characterExchange)
+				.with(RabbitMQRouting.Character.DELETE.name());
+	}
+
+	@Bean
+	public Binding bindingCharacterCacheInvalidated(DirectExchange characterExchange, Queue characterCacheQueue) {
+		return BindingBuilder.bind(characterCacheQueue).to(characterExchange)
+				.with(CharacterCache.INVALIDATE_ROUTING_KEY);
+	}
+
+	// Shared by all nodes since the profile projection lives in the database
+	@Bean
+	public Queue characterProfileQueue(@Value("${character.profile.queue:character_profile}") String name) {
+		return new Queue(name);
+	}
+
+	// Only the bindings, the exchanges belong to the trait, currency and recipe services that declare them
+	@Bean
+	public List<Declarable> characterProfileBindings(Queue characterProfileQueue,
+			ProfileEventRouting profileEventRouting) {
+		List<Declarable> declarables = new ArrayList<>();
+		profileEventRouting.getRoutes().forEach((exchangeName, routes) -> {
+			for (String routingKey : routes.keySet()) {
+				declarables.add(new Binding(characterProfileQueue.getName(), Binding.DestinationType.QUEUE,
+						exchangeName, routingKey, null));
+			}
+		});
+		return declarables;
+	}
+
 	@Bean
 	public Jackson2JsonMessageConverter jacksonConverter() {
 		return new Jackson2JsonMessageConverter();
 	}
 
 	@Bean
-	public SimpleRabbitListenerContainerFactory containerFactory() {
+	public SimpleRabbitListenerContainerFactory containerFactory(ConnectionFactory connectionFactory) {
+		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+		factory.setConnectionFactory(connectionFactory);
+		factory.setMessageConverter(jacksonConverter());
+		return factory;
+	}
+
+	/**
+	 * Profile events are applied by a single consumer, so the events of a character are applied in the order they
+	 * were queued, and acknowledged every {@code ack-batch-size} messages, or when the queue runs dry, instead of
+	 * one by one. The listener is exclusive, so this holds across nodes as well.
+	 */
+	@Bean
+	public SimpleRabbitListenerContainerFactory profileContainerFactory(ConnectionFactory connectionFactory,
+			@Value("${character.profile.ack-batch-size:50}") int ackBatchSize) {
 		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+		factory.setConnectionFactory(connectionFactory);
 		factory.setMessageConverter(jacksonConverter());
+		factory.setConcurrentConsumers(1);
+		factory.setMaxConcurrentConsumers(1);
+		factory.setTxSize(ackBatchSize);
+		factory.setPrefetchCount(ackBatchSize * 2);
 		return factory;
 	}
 
@@ -0,0 +1,33 @@
+package com.valhallagame.characterserviceserver.config;
+
+import com.valhallagame.characterserviceserver.replica.ReplicaLagMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the replicas in {@code character.replicas.urls} next to {@code spring.datasource} for the reads that
+ * {@code RecentWrites} lets through. Replicas log in like the primary. When sharded, replicas are configured per
+ * shard instead, see {@link ShardingConfig}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${character.replicas.urls:}'.isEmpty() && !${character.sharding.enabled:false}")
+public class ReplicaConfig {
+
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties properties, ConfigurableEnvironment environment,
+								 ReplicaLagMonitor replicaLagMonitor, DataSourcePoolRegistry poolRegistry,
+								 @Value("${character.replicas.urls}") String[] replicaUrls) {
+		DataSource primary = DataSourcePools.pool("primary", properties.getUrl(), properties.getUsername(),
+				properties.getPassword(), environment, poolRegistry);
+		return DataSourcePools.withReplicas("primary", primary, replicaUrls, properties.getUsername(),
+				properties.getPassword(), environment, replicaLagMonitor, poolRegistry);
+	}
+}
@@ -0,0 +1,31 @@
+package com.valhallagame.characterserviceserver.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RequestExecutionConfig {
+
+	/**
+	 * Pool that runs controller handlers when {@code character.async-requests.enabled} is set, so a Tomcat worker
+	 * only parses the request and is released while the handler blocks on the database or downstream services.
+	 * It is sized on its own, independently of the Tomcat connector and the JDBC pool. A full queue rejects the
+	 * request instead of piling up work the service cannot finish in time.
+	 */
+	@Bean(name = "requestHandlerExecutor", destroyMethod = "shutdown")
+	public ExecutorService requestHandlerExecutor(@Value("${character.async-requests.threads:400}") int threads,
+												  @Value("${character.async-requests.queue-size:2000}") int queueSize) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize), new CustomizableThreadFactory("request-"),
+				new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
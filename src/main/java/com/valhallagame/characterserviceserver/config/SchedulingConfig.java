@@ -0,0 +1,23 @@
+package com.valhallagame.characterserviceserver.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+	/**
+	 * Runs the {@code @Scheduled} jobs. Without it Spring runs them all on one thread, so a slow name index
+	 * rebuild or a broker stall in the outbox relay would hold up replica lag checks and everything else. The
+	 * default leaves a thread for each of the seven jobs plus one spare.
+	 */
+	@Bean
+	public ThreadPoolTaskScheduler taskScheduler(@Value("${character.scheduling.threads:8}") int threads) {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(threads);
+		scheduler.setThreadNamePrefix("scheduled-");
+		return scheduler;
+	}
+}
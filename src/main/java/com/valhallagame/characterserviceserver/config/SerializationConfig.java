@@ -0,0 +1,24 @@
+package com.valhallagame.characterserviceserver.config;
+
+import com.valhallagame.characterserviceserver.controller.ResponseFormats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.List;
+
+@Configuration
+public class SerializationConfig extends WebMvcConfigurerAdapter {
+
+	@Autowired
+	private ResponseFormats responseFormats;
+
+	/**
+	 * Appended after the JSON converter so that a request accepting anything still gets JSON.
+	 */
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(responseFormats.getSmileConverter());
+	}
+}
@@ -4,6 +4,7 @@ import com.valhallagame.common.DefaultServicePortMappings;
 import com.valhallagame.currencyserviceclient.CurrencyServiceClient;
 import com.valhallagame.recipeserviceclient.RecipeServiceClient;
 import com.valhallagame.traitserviceclient.TraitServiceClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -11,21 +12,30 @@ import org.springframework.context.annotation.Profile;
 @Configuration
 @Profile({"production", "development"})
 public class ServiceConfig {
+	@Value("${character.services.trait-url:http://trait-service:" + DefaultServicePortMappings.TRAIT_SERVICE_PORT + "}")
+	private String traitServiceUrl;
+
+	@Value("${character.services.currency-url:http://currency-service:" + DefaultServicePortMappings.CURRENCY_SERVICE_PORT + "}")
+	private String currencyServiceUrl;
+
+	@Value("${character.services.recipe-url:http://recipe-service:" + DefaultServicePortMappings.RECIPE_SERVICE_PORT + "}")
+	private String recipeServiceUrl;
+
 	@Bean
 	public TraitServiceClient traitServiceClient() {
-		TraitServiceClient.init("http://trait-service:" + DefaultServicePortMappings.TRAIT_SERVICE_PORT);
+		TraitServiceClient.init(traitServiceUrl);
 		return TraitServiceClient.get();
 	}
 
 	@Bean
 	public CurrencyServiceClient currencyServiceClient() {
-		CurrencyServiceClient.init("http://currency-service:" + DefaultServicePortMappings.CURRENCY_SERVICE_PORT);
+		CurrencyServiceClient.init(currencyServiceUrl);
 		return CurrencyServiceClient.get();
 	}
 
 	@Bean
 	public RecipeServiceClient recipeServiceClient() {
-		RecipeServiceClient.init("http://recipe-service:" + DefaultServicePortMappings.RECIPE_SERVICE_PORT);
+		RecipeServiceClient.init(recipeServiceUrl);
 		return RecipeServiceClient.get();
 	}
 }
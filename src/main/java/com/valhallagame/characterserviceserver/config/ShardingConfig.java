@@ -0,0 +1,133 @@
+package com.valhallagame.characterserviceserver.config;
+
+import com.valhallagame.characterserviceserver.replica.ReplicaLagMonitor;
+import com.valhallagame.characterserviceserver.repository.CharacterProfileRepository;
+import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import com.valhallagame.characterserviceserver.sharding.CharacterDirectory;
+import com.valhallagame.characterserviceserver.sharding.ConsistentHashRing;
+import com.valhallagame.characterserviceserver.sharding.ProfileShardRoutingInterceptor;
+import com.valhallagame.characterserviceserver.sharding.ShardMover;
+import com.valhallagame.characterserviceserver.sharding.ShardRouter;
+import com.valhallagame.characterserviceserver.sharding.ShardRoutingDataSource;
+import com.valhallagame.characterserviceserver.sharding.ShardRoutingInterceptor;
+import org.flywaydb.core.Flyway;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits characters across several databases by owner. {@code spring.datasource} becomes the directory database
+ * and every id in {@code character.sharding.shards} needs {@code character.sharding.shard.<id>.url}, {@code
+ * .username} and {@code .password}, optionally {@code .replicas} with a list of replica urls. All pools take the
+ * {@code spring.datasource.tomcat} settings, so size those for one database.
+ */
+@Configuration
+@ConditionalOnProperty("character.sharding.enabled")
+public class ShardingConfig {
+
+	/**
+	 * The only data source bean, so the timing wrapper goes around it once; every pool behind it is timed on its
+	 * own in the {@link DataSourcePoolRegistry}. Each shard is migrated before anything can route to it.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties properties, ConfigurableEnvironment environment,
+								 ReplicaLagMonitor replicaLagMonitor, DataSourcePoolRegistry poolRegistry,
+								 @Value("${character.sharding.shards}") String[] shardIds) {
+		DataSource directory = DataSourcePools.pool("directory", properties.getUrl(), properties.getUsername(),
+				properties.getPassword(), environment, poolRegistry);
+
+		Map<String, DataSource> shards = new LinkedHashMap<>();
+		for (String shardId : shardIds) {
+			String prefix = "character.sharding.shard." + shardId + ".";
+			String username = environment.getProperty(prefix + "username", properties.getUsername());
+			String password = environment.getProperty(prefix + "password", properties.getPassword());
+			DataSource shard = DataSourcePools.pool(shardId, environment.getRequiredProperty(prefix + "url"),
+					username, password, environment, poolRegistry);
+			Flyway flyway = new Flyway();
+			flyway.setDataSource(shard);
+			flyway.setLocations("db/migration");
+			flyway.migrate();
+			shards.put(shardId, DataSourcePools.withReplicas(shardId, shard,
+					environment.getProperty(prefix + "replicas", String[].class, new String[0]), username, password,
+					environment, replicaLagMonitor, poolRegistry));
+		}
+
+		ShardRoutingDataSource routing = new ShardRoutingDataSource(directory, shards);
+		routing.afterPropertiesSet();
+		return routing;
+	}
+
+	/**
+	 * Replaces the auto-configured migration of {@code spring.datasource}, which now holds the directory. Its
+	 * history lives in its own table so a database that was the single database before can become the directory
+	 * in place and keep its characters around for the import.
+	 */
+	@Bean(initMethod = "migrate")
+	public Flyway flyway(DataSource dataSource) {
+		Flyway flyway = new Flyway();
+		flyway.setDataSource(dataSource);
+		flyway.setLocations("db/directory");
+		flyway.setTable("directory_schema_version");
+		flyway.setBaselineOnMigrate(true);
+		flyway.setBaselineVersionAsString("0");
+		return flyway;
+	}
+
+	@Bean
+	public ConsistentHashRing consistentHashRing(@Value("${character.sharding.shards}") String[] shardIds,
+												 @Value("${character.sharding.virtual-nodes:128}") int virtualNodes) {
+		return new ConsistentHashRing(Arrays.asList(shardIds), virtualNodes);
+	}
+
+	@Bean
+	public CharacterDirectory characterDirectory(JdbcTemplate jdbcTemplate) {
+		return new CharacterDirectory(jdbcTemplate);
+	}
+
+	@Bean
+	public ShardMover shardMover(ObjectFactory<CharacterRepository> characterRepository,
+								 CharacterDirectory characterDirectory, JdbcTemplate jdbcTemplate,
+								 PlatformTransactionManager transactionManager) {
+		return new ShardMover(characterRepository, characterDirectory, jdbcTemplate, transactionManager);
+	}
+
+	/**
+	 * Puts the routing in front of everything else on the repository proxies, the transaction advice included.
+	 * Static and lazy for the same reason as the latency post processor.
+	 */
+	@Bean
+	public static BeanPostProcessor shardRoutingPostProcessor(ObjectFactory<ShardRouter> router,
+															  ObjectFactory<ShardMover> mover) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				return bean;
+			}
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof Advised && bean instanceof CharacterRepository) {
+					((Advised) bean).addAdvice(0, new ShardRoutingInterceptor(router.getObject(), mover));
+				} else if (bean instanceof Advised && bean instanceof CharacterProfileRepository) {
+					((Advised) bean).addAdvice(0, new ProfileShardRoutingInterceptor(router.getObject()));
+				}
+				return bean;
+			}
+		};
+	}
+}
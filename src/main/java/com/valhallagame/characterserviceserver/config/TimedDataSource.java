@@ -0,0 +1,83 @@
+package com.valhallagame.characterserviceserver.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how long callers wait to get a connection from the pool. A growing wait while the database itself is
+ * idle means the pool, not the database, is what the service is queueing on.
+ */
+public class TimedDataSource extends DelegatingDataSource {
+
+	private final LongAdder borrowed = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder waitNanos = new LongAdder();
+
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+	public TimedDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			Connection connection = super.getConnection();
+			record(start);
+			return connection;
+		} catch (SQLException | RuntimeException e) {
+			failed.increment();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		long start = System.nanoTime();
+		try {
+			Connection connection = super.getConnection(username, password);
+			record(start);
+			return connection;
+		} catch (SQLException | RuntimeException e) {
+			failed.increment();
+			throw e;
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		DataSource target = getTargetDataSource();
+		if (target instanceof org.apache.tomcat.jdbc.pool.DataSource) {
+			org.apache.tomcat.jdbc.pool.DataSource pool = (org.apache.tomcat.jdbc.pool.DataSource) target;
+			stats.put("active", pool.getActive());
+			stats.put("idle", pool.getIdle());
+			stats.put("size", pool.getSize());
+			stats.put("maxActive", pool.getMaxActive());
+			stats.put("waiting", pool.getWaitCount());
+		}
+		long count = borrowed.sum();
+		stats.put("borrowed", count);
+		stats.put("borrowFailures", failed.sum());
+		stats.put("meanWaitMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count));
+		stats.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+		return stats;
+	}
+
+	private void record(long start) {
+		long nanos = System.nanoTime() - start;
+		borrowed.increment();
+		waitNanos.add(nanos);
+		maxWaitNanos.accumulate(nanos);
+	}
+}
@@ -1,26 +1,39 @@
 package com.valhallagame.characterserviceserver.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.valhallagame.characterserviceclient.message.*;
+import com.valhallagame.characterserviceserver.accesslog.AccessLog;
+import com.valhallagame.characterserviceserver.message.EquipLoadoutParameter;
+import com.valhallagame.characterserviceserver.message.GetCharactersBatchParameter;
 import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.CharacterProfile;
 import com.valhallagame.characterserviceserver.service.CharacterService;
+import com.valhallagame.characterserviceserver.service.CharacterValidator;
+import com.valhallagame.characterserviceserver.service.CreationError;
+import com.valhallagame.characterserviceserver.service.EncodedCharacter;
 import com.valhallagame.common.JS;
-import com.valhallagame.common.rabbitmq.NotificationMessage;
-import com.valhallagame.common.rabbitmq.RabbitMQRouting;
-import com.valhallagame.common.rabbitmq.RabbitSender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,135 +47,187 @@ public class CharacterController {
     private CharacterService characterService;
 
     @Autowired
-    private RabbitSender rabbitSender;
+    private ResponseFormats responseFormats;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
 
     @RequestMapping(path = "/get-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> getCharacterWithoutOwnerValidation(
-            @Valid @RequestBody GetCharacterParameter input) {
-        logger.info("Get Character called with {}", input);
-        Optional<Character> optCharacter = characterService.getCharacter(input.getCharacterName());
-        if (!optCharacter.isPresent()) {
-            return JS.message(HttpStatus.NOT_FOUND, "No character with that character name was found!");
-        }
-        return JS.message(HttpStatus.OK, optCharacter.get());
+    public Object getCharacterWithoutOwnerValidation(
+            @Valid @RequestBody GetCharacterParameter input,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws Exception {
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Get Character called with {}", input);
+        MediaType contentType = responseFormats.contentTypeFor(accept);
+        return requestExecutor.execute(() -> {
+            Optional<EncodedCharacter> encoded = characterService.getEncodedCharacter(input.getCharacterName(),
+                    contentType.toString(), responseFormats.encoder(contentType));
+            if (!encoded.isPresent()) {
+                return JS.message(HttpStatus.NOT_FOUND, "No character with that character name was found!");
+            }
+            return encodedResponse(encoded.get(), contentType, ifNoneMatch);
+        });
     }
 
     @RequestMapping(path = "/get-owned-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> getCharacterWithOwner(@Valid @RequestBody GetOwnedCharacterParameter input) {
-        logger.info("Get Character called with {}", input);
-        Optional<Character> optcharacter = characterService.getCharacter(input.getCharacterName());
-        if (!optcharacter.isPresent()) {
-            return JS.message(HttpStatus.NOT_FOUND, "No character with that character name was found!");
-        }
+    public Object getCharacterWithOwner(
+            @Valid @RequestBody GetOwnedCharacterParameter input,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws Exception {
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Get Character called with {}", input);
+        MediaType contentType = responseFormats.contentTypeFor(accept);
+        return requestExecutor.execute(() -> {
+            Optional<EncodedCharacter> encoded = characterService.getEncodedCharacter(input.getCharacterName(),
+                    contentType.toString(), responseFormats.encoder(contentType));
+            if (!encoded.isPresent()) {
+                return JS.message(HttpStatus.NOT_FOUND, "No character with that character name was found!");
+            }
+
+            if (!encoded.get().getOwnerUsername().equals(input.getUsername())) {
+                return JS.message(HttpStatus.NOT_FOUND, "Wrong owner!");
+            }
+            return encodedResponse(encoded.get(), contentType, ifNoneMatch);
+        });
+    }
 
-        Character character = optcharacter.get();
-        if (!character.getOwnerUsername().equals(input.getUsername())) {
-            return JS.message(HttpStatus.NOT_FOUND, "Wrong owner!");
+    /**
+     * Resolves a whole party in one query. The response is streamed as an object keyed by lower-cased character
+     * name, where every requested name has an entry with a found flag and either the character or a message.
+     * Encoded as JSON or Smile depending on the Accept header, like the single character reads.
+     */
+    @RequestMapping(path = "/get-characters-batch", method = RequestMethod.POST)
+    public void getCharactersBatch(@Valid @RequestBody GetCharactersBatchParameter input,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                   HttpServletResponse response) throws IOException {
+        logger.debug("Get Characters Batch called with {}", input);
+        Map<String, Character> characters = characterService.getCharactersByName(input.getCharacterNames());
+
+        ObjectMapper mapper = responseFormats.mapperFor(accept);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(responseFormats.contentTypeFor(accept).toString());
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            for (String requested : input.getCharacterNames()) {
+                String characterName = requested.toLowerCase();
+                generator.writeObjectFieldStart(characterName);
+                Character character = characters.get(characterName);
+                generator.writeBooleanField("found", character != null);
+                if (character != null) {
+                    generator.writeFieldName("character");
+                    mapper.writeValue(generator, character);
+                } else {
+                    generator.writeStringField("message", "No character with that character name was found!");
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
         }
-        return JS.message(HttpStatus.OK, optcharacter.get());
     }
 
     @RequestMapping(path = "/get-all-characters", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> getAllCharacters(@Valid @RequestBody GetAllCharactersParameter input) {
-        logger.info("Get All Character called with {}", input);
-        return JS.message(HttpStatus.OK, characterService.getCharacters(input.getUsername()));
+    public Object getAllCharacters(
+            @Valid @RequestBody GetAllCharactersParameter input) throws Exception {
+        logger.debug("Get All Character called with {}", input);
+        return requestExecutor.execute(() ->
+                ResponseEntity.ok(characterService.getCharacters(input.getUsername())));
     }
 
     @RequestMapping(path = "/create-debug-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> createDebugCharacter(@Valid @RequestBody CreateDebugCharacterParameter input)
-            throws IOException {
+    public Object createDebugCharacter(
+            @Valid @RequestBody CreateDebugCharacterParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getDisplayCharacterName());
         logger.info("Create Debug Character called with {}", input);
-        String charName = input.getDisplayCharacterName().toLowerCase();
-        Optional<Character> localOpt = characterService.getCharacter(charName);
-        if (!localOpt.isPresent()) {
+        CreationError error = CharacterValidator.validateName(input.getDisplayCharacterName());
+        if (error != null) {
+            return invalid(error);
+        }
+        return requestExecutor.execute(() -> {
+            String charName = input.getDisplayCharacterName().toLowerCase();
+            Optional<Character> localOpt = characterService.getCharacter(charName);
+            if (!localOpt.isPresent()) {
 
-            String characterDisplayName = input.getDisplayCharacterName().chars()
-                    .mapToObj(c -> String.valueOf((char) c))
-                    .map(c -> Math.random() < 0.5 ? c.toUpperCase() : c.toLowerCase()).collect(Collectors.joining());
+                String characterDisplayName = input.getDisplayCharacterName().chars()
+                        .mapToObj(c -> String.valueOf((char) c))
+                        .map(c -> Math.random() < 0.5 ? c.toUpperCase() : c.toLowerCase()).collect(Collectors.joining());
 
-            input.setDisplayCharacterName(characterDisplayName);
+                input.setDisplayCharacterName(characterDisplayName);
 
-            CreateCharacterParameter out = new CreateCharacterParameter(input.getDisplayCharacterName(),
-                    input.getUsername(), "debug");
+                CreateCharacterParameter out = new CreateCharacterParameter(input.getDisplayCharacterName(),
+                        input.getUsername(), "debug");
 
-            return createCharacter(out);
-        } else {
-            Character character = localOpt.get();
-            character.setOwnerUsername(input.getUsername());
-            characterService.saveCharacter(character);
-        }
-        return JS.message(HttpStatus.OK, "OK");
+                return create(out);
+            } else {
+                Character character = localOpt.get();
+                character.setOwnerUsername(input.getUsername());
+                characterService.saveCharacter(character);
+            }
+            return JS.message(HttpStatus.OK, "OK");
+        });
     }
 
     @RequestMapping(path = "/create-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> createCharacter(@Valid @RequestBody CreateCharacterParameter input)
-            throws IOException {
+    public Object createCharacter(
+            @Valid @RequestBody CreateCharacterParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getDisplayCharacterName());
         logger.info("Create Character called with {}", input);
+        CreationError error = CharacterValidator.validateCreation(input.getDisplayCharacterName(),
+                input.getStartingClass());
+        if (error != null) {
+            return invalid(error);
+        }
+        return requestExecutor.execute(() -> create(input));
+    }
+
+    private ResponseEntity<JsonNode> create(CreateCharacterParameter input) throws IOException {
         String displayCharacterName = input.getDisplayCharacterName();
-        if (displayCharacterName.contains("#")) {
-            return JS.message(HttpStatus.BAD_REQUEST, "# is not allowed in character name");
+        if (characterService.isCharacterNameTaken(displayCharacterName)) {
+            return JS.message(HttpStatus.CONFLICT, "Character already exists.");
         }
-        Optional<Character> localOpt = characterService.getCharacter(displayCharacterName.toLowerCase());
-        if (localOpt.isPresent()) {
+        try {
+            Character character = characterService.createCharacter(input.getUsername(), input.getDisplayCharacterName(), input.getStartingClass());
+            return JS.message(HttpStatus.OK, character);
+        } catch (DataIntegrityViolationException e) {
             return JS.message(HttpStatus.CONFLICT, "Character already exists.");
         }
-        Character character = characterService.createCharacter(input.getUsername(), input.getDisplayCharacterName(), input.getStartingClass());
-        return JS.message(HttpStatus.OK, character);
     }
 
     @RequestMapping(path = "/delete-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> deleteCharacter(@Valid @RequestBody DeleteCharacterParameter input) {
+    public Object deleteCharacter(
+            @Valid @RequestBody DeleteCharacterParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getDisplayCharacterName());
         logger.info("Delete Character called with {}", input);
-        String owner = input.getUsername();
-        Optional<Character> localOpt = characterService.getCharacter(input.getDisplayCharacterName().toLowerCase());
-        if (!localOpt.isPresent()) {
-            return JS.message(HttpStatus.NOT_FOUND, "Not found");
-        }
-
-        Character local = localOpt.get();
-
-        if (owner.equals(local.getOwnerUsername())) {
-            // Randomly(ish) select a new character as default character if the
-            // person has one.
-            Optional<Character> selectedCharacterOpt = characterService.getSelectedCharacter(owner);
-            if (selectedCharacterOpt.isPresent() && selectedCharacterOpt.get().equals(local)) {
-                characterService.getCharacters(owner).stream().filter(x -> !x.equals(local)).findAny()
-                        .ifPresent(ch -> characterService.setSelectedCharacter(owner, ch.getCharacterName()));
+        return requestExecutor.execute(() -> {
+            String characterName = input.getDisplayCharacterName().toLowerCase();
+            if (characterService.deleteCharacter(input.getUsername(), characterName).isDeleted()) {
+                return JS.message(HttpStatus.OK, "Deleted character");
             }
-            characterService.deleteCharacter(local);
-
-            NotificationMessage notificationMessage = new NotificationMessage(owner, "A character was deleted");
-            notificationMessage.addData("characterName", local.getCharacterName());
-
-            rabbitSender.sendMessage(RabbitMQRouting.Exchange.CHARACTER,
-                    RabbitMQRouting.Character.DELETE.name(), notificationMessage);
 
-            return JS.message(HttpStatus.OK, "Deleted character");
-        } else {
+            if (!characterService.getCharacter(characterName).isPresent()) {
+                return JS.message(HttpStatus.NOT_FOUND, "Not found");
+            }
             return JS.message(HttpStatus.FORBIDDEN, "No access");
-        }
+        });
     }
 
     @RequestMapping(path = "/character-available", method = RequestMethod.POST)
     @ResponseBody
     public ResponseEntity<JsonNode> characterAvailable(@Valid @RequestBody CharacterAvailableParameter input) {
-        logger.info("Character Available called with {}", input);
-        if (input.getCharacterName() == null || input.getCharacterName().isEmpty()) {
-            return JS.message(HttpStatus.BAD_REQUEST, "Missing characterName field");
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Character Available called with {}", input);
+        CreationError error = CharacterValidator.validateName(input.getCharacterName());
+        if (error != null) {
+            return invalid(error);
         }
 
-        if (input.getCharacterName().contains("#")) {
-            return JS.message(HttpStatus.BAD_REQUEST, "# is not allowed in character name");
-        }
-
-        Optional<Character> localOpt = characterService.getCharacter(input.getCharacterName());
-        if (localOpt.isPresent()) {
+        if (characterService.isCharacterNameKnown(input.getCharacterName())) {
             return JS.message(HttpStatus.CONFLICT, "Character not available");
         } else {
             return JS.message(HttpStatus.OK, "Character available");
@@ -171,57 +236,127 @@ public class CharacterController {
 
     @RequestMapping(path = "/select-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> selectCharacter(@Valid @RequestBody SelectCharacterParameter input) {
-        logger.info("Select Character called with {}", input);
-        String characterName = input.getDisplayCharacterName().toLowerCase();
-        Optional<Character> localOpt = characterService.getCharacter(characterName);
-        if (!localOpt.isPresent()) {
-            return JS.message(HttpStatus.NOT_FOUND,
-                    "Character with name " + characterName + " was not found.");
-        } else {
-            if (!localOpt.get().getOwnerUsername().equals(input.getUsername())) {
-                return JS.message(HttpStatus.FORBIDDEN, "You don't own that character.");
+    public Object selectCharacter(
+            @Valid @RequestBody SelectCharacterParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getDisplayCharacterName());
+        logger.debug("Select Character called with {}", input);
+        return requestExecutor.execute(() -> {
+            String characterName = input.getDisplayCharacterName().toLowerCase();
+            if (characterService.selectCharacter(input.getUsername(), characterName).isPresent()) {
+                return JS.message(HttpStatus.OK, "Character selected");
             }
-            characterService.setSelectedCharacter(input.getUsername(), characterName);
-            return JS.message(HttpStatus.OK, "Character selected");
-        }
+
+            // Only failed selections pay for the lookup that tells a missing character from someone else's
+            if (!characterService.getCharacter(characterName).isPresent()) {
+                return JS.message(HttpStatus.NOT_FOUND,
+                        "Character with name " + characterName + " was not found.");
+            }
+            return JS.message(HttpStatus.FORBIDDEN, "You don't own that character.");
+        });
     }
 
     @RequestMapping(path = "/get-selected-character", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> getSelectedCharacter(@Valid @RequestBody GetSelectedCharacterParameter input) {
-        logger.info("Get Selected Character called with {}", input);
-        Optional<Character> selectedCharacter = characterService.getSelectedCharacter(input.getUsername());
-        if (selectedCharacter.isPresent()) {
-            return JS.message(HttpStatus.OK, selectedCharacter.get());
-        } else {
-            return JS.message(HttpStatus.NOT_FOUND, "No character selected");
-        }
+    public Object getSelectedCharacter(
+            @Valid @RequestBody GetSelectedCharacterParameter input,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws Exception {
+        logger.debug("Get Selected Character called with {}", input);
+        MediaType contentType = responseFormats.contentTypeFor(accept);
+        return requestExecutor.execute(() -> {
+            Optional<EncodedCharacter> selectedCharacter = characterService.getEncodedSelectedCharacter(
+                    input.getUsername(), contentType.toString(), responseFormats.encoder(contentType));
+            if (selectedCharacter.isPresent()) {
+                return encodedResponse(selectedCharacter.get(), contentType, ifNoneMatch);
+            } else {
+                return JS.message(HttpStatus.NOT_FOUND, "No character selected");
+            }
+        });
     }
 
-    @RequestMapping(path = "/equip-item", method = RequestMethod.POST)
+    /**
+     * Traits, currencies and recipes of a character, served from the local projection of the other services'
+     * events rather than by asking them.
+     */
+    @RequestMapping(path = "/get-character-profile", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> equipItem(@Valid @RequestBody EquipItemParameter input) {
-        logger.info("Equip Item called with {}", input);
+    public Object getCharacterProfile(
+            @Valid @RequestBody GetCharacterParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Get Character Profile called with {}", input);
+        return requestExecutor.execute(() -> {
+            Optional<CharacterProfile> profile = characterService.getCharacterProfile(input.getCharacterName());
+            if (!profile.isPresent()) {
+                return JS.message(HttpStatus.NOT_FOUND, "No character with that character name was found!");
+            }
+            return ResponseEntity.ok(profile.get());
+        });
+    }
 
-        Character character = characterService.equipItem(input.getCharacterName(), input.getItemToEquip());
-        if (character != null) {
-            return JS.message(HttpStatus.OK, character);
-        } else {
-            return JS.message(HttpStatus.NOT_FOUND, "No character with that character name");
-        }
+    @RequestMapping(path = "/equip-item", method = RequestMethod.POST)
+    @ResponseBody
+    public Object equipItem(@Valid @RequestBody EquipItemParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Equip Item called with {}", input);
+        return requestExecutor.execute(() -> {
+            Character character = characterService.equipItem(input.getCharacterName(), input.getItemToEquip());
+            if (character != null) {
+                return JS.message(HttpStatus.OK, character);
+            } else {
+                return JS.message(HttpStatus.NOT_FOUND, "No character with that character name");
+            }
+        });
     }
 
     @RequestMapping(path = "/unequip-item", method = RequestMethod.POST)
     @ResponseBody
-    public ResponseEntity<JsonNode> unequipItem(@Valid @RequestBody UnequipItemParameter input) {
-        logger.info("Unequip Item called with {}", input);
+    public Object unequipItem(@Valid @RequestBody UnequipItemParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Unequip Item called with {}", input);
+        return requestExecutor.execute(() -> {
+            Character character = characterService.unequipItem(input.getCharacterName(), input.getItemSlot());
+            if (character != null) {
+                return JS.message(HttpStatus.OK, character);
+            } else {
+                return JS.message(HttpStatus.NOT_FOUND, "No character with that character name");
+            }
+        });
+    }
 
-        Character character = characterService.unequipItem(input.getCharacterName(), input.getItemSlot());
-        if (character != null) {
-            return JS.message(HttpStatus.OK, character);
-        } else {
-            return JS.message(HttpStatus.NOT_FOUND, "No character with that character name");
+    @RequestMapping(path = "/equip-loadout", method = RequestMethod.POST)
+    @ResponseBody
+    public Object equipLoadout(@Valid @RequestBody EquipLoadoutParameter input) throws Exception {
+        AccessLog.tagCharacter(input.getCharacterName());
+        logger.debug("Equip Loadout called with {}", input);
+        return requestExecutor.execute(() -> {
+            Character character = characterService.equipLoadout(input.getCharacterName(), input.getItemsToEquip(),
+                    input.getItemSlotsToUnequip());
+            if (character != null) {
+                return JS.message(HttpStatus.OK, character);
+            } else {
+                return JS.message(HttpStatus.NOT_FOUND, "No character with that character name");
+            }
+        });
+    }
+
+    /**
+     * A cached body, or a bodiless 304 when the client already holds this version in this format.
+     */
+    private static ResponseEntity<?> encodedResponse(EncodedCharacter encoded, MediaType contentType,
+                                                     String ifNoneMatch) {
+        if (encoded.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(encoded.getEtag()).build();
         }
+        return ResponseEntity.ok().contentType(contentType).eTag(encoded.getEtag()).body(encoded.getBody());
+    }
+
+    /**
+     * Rejects a name or class without any I/O. The body carries a stable code next to the usual message.
+     */
+    private static ResponseEntity<JsonNode> invalid(CreationError error) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("code", error.getCode());
+        body.put("message", error.getMessage());
+        return JS.message(error.getStatus(), body);
     }
 }
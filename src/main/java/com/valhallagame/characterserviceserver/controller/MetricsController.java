@@ -0,0 +1,97 @@
+package com.valhallagame.characterserviceserver.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.valhallagame.characterserviceserver.accesslog.AccessLog;
+import com.valhallagame.characterserviceserver.config.DataSourcePoolRegistry;
+import com.valhallagame.characterserviceserver.config.TimedDataSource;
+import com.valhallagame.characterserviceserver.metrics.LatencyRegistry;
+import com.valhallagame.characterserviceserver.rabbitmq.CharacterEventPublisher;
+import com.valhallagame.characterserviceserver.rabbitmq.CharacterOutboxRelay;
+import com.valhallagame.characterserviceserver.replica.ReplicaLagMonitor;
+import com.valhallagame.characterserviceserver.repository.ItemDictionary;
+import com.valhallagame.characterserviceserver.repository.ItemIdBackfill;
+import com.valhallagame.characterserviceserver.service.CharacterCache;
+import com.valhallagame.characterserviceserver.service.CharacterNameIndex;
+import com.valhallagame.characterserviceserver.service.RecentWrites;
+import com.valhallagame.common.JS;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Controller
+public class MetricsController {
+
+	@Autowired
+	private CharacterCache characterCache;
+
+	@Autowired
+	private CharacterNameIndex characterNameIndex;
+
+	@Autowired
+	private CharacterEventPublisher characterEventPublisher;
+
+	@Autowired
+	private CharacterOutboxRelay characterOutboxRelay;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private DataSourcePoolRegistry dataSourcePoolRegistry;
+
+	@Autowired
+	private ItemDictionary itemDictionary;
+
+	@Autowired
+	private ItemIdBackfill itemIdBackfill;
+
+	@Autowired
+	private ReplicaLagMonitor replicaLagMonitor;
+
+	@Autowired
+	private RecentWrites recentWrites;
+
+	@Autowired
+	private LatencyRegistry latencyRegistry;
+
+	@Autowired
+	private AccessLog accessLog;
+
+	@RequestMapping(path = "/metrics", method = RequestMethod.GET)
+	public ResponseEntity<JsonNode> metrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("characterCache", characterCache.getStats());
+		metrics.put("characterNameIndexSize", characterNameIndex.size());
+		metrics.put("characterEvents", characterEventPublisher.getStats());
+		metrics.put("characterOutbox", characterOutboxRelay.getStats());
+		metrics.put("accessLogDropped", accessLog.getDropped());
+		metrics.put("itemDictionarySize", itemDictionary.size());
+		metrics.put("itemIdBackfill", itemIdBackfill.getStats());
+		metrics.put("replicas", replicaLagMonitor.getStats());
+		metrics.put("recentWritesSize", recentWrites.size());
+		metrics.put("stickyReads", recentWrites.getStickyReads());
+		if (dataSource instanceof TimedDataSource) {
+			metrics.put("dataSource", ((TimedDataSource) dataSource).getStats());
+		}
+		if (!dataSourcePoolRegistry.isEmpty()) {
+			metrics.put("dataSourcePools", dataSourcePoolRegistry.getStats());
+		}
+		return JS.message(HttpStatus.OK, metrics);
+	}
+
+	/**
+	 * Latency percentiles and error counts per endpoint, repository method, downstream client call and Rabbit
+	 * routing key, in microseconds since startup.
+	 */
+	@RequestMapping(path = "/metrics/latency", method = RequestMethod.GET)
+	public ResponseEntity<JsonNode> latency() {
+		return JS.message(HttpStatus.OK, latencyRegistry.snapshot());
+	}
+}
@@ -0,0 +1,69 @@
+package com.valhallagame.characterserviceserver.controller;
+
+import com.valhallagame.common.JS;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs controller handlers either on the calling Tomcat thread or, with {@code character.async-requests.enabled},
+ * on the {@code requestHandlerExecutor} pool behind an async servlet response. Controllers declare {@code Object}
+ * and return what {@link #execute(Handler)} gives them: the handler's {@link ResponseEntity} itself when async
+ * requests are off, so Spring MVC writes it right away without starting async processing and dispatching the
+ * request a second time, and a {@link DeferredResult} when they are on. Spring MVC picks the return value handler
+ * by the class of the returned value. Exceptions thrown by a handler end up in the usual Spring MVC exception
+ * handling in both modes. Handlers may return any body the message converters can write, which lets reads hand
+ * the entity over without building a {@link JS#message} tree.
+ */
+@Component
+public class RequestExecutor {
+
+	public interface Handler {
+		ResponseEntity<?> handle() throws Exception;
+	}
+
+	private final ExecutorService executor;
+
+	private final boolean enabled;
+
+	private final long timeoutMs;
+
+	@Autowired
+	public RequestExecutor(@Qualifier("requestHandlerExecutor") ExecutorService executor,
+						   @Value("${character.async-requests.enabled:false}") boolean enabled,
+						   @Value("${character.async-requests.timeout-ms:30000}") long timeoutMs) {
+		this.executor = executor;
+		this.enabled = enabled;
+		this.timeoutMs = timeoutMs;
+	}
+
+	public Object execute(Handler handler) throws Exception {
+		if (!enabled) {
+			return handler.handle();
+		}
+
+		DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeoutMs,
+				JS.message(HttpStatus.SERVICE_UNAVAILABLE, "Request timed out"));
+		try {
+			executor.execute(() -> complete(result, handler));
+		} catch (RejectedExecutionException e) {
+			result.setResult(JS.message(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests"));
+		}
+		return result;
+	}
+
+	private static void complete(DeferredResult<ResponseEntity<?>> result, Handler handler) {
+		try {
+			result.setResult(handler.handle());
+		} catch (Exception e) {
+			result.setErrorResult(e);
+		}
+	}
+}
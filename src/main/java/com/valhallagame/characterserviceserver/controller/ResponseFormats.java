@@ -0,0 +1,95 @@
+package com.valhallagame.characterserviceserver.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The encodings character reads are served in. JSON stays the default; game servers that send
+ * {@code Accept: application/x-jackson-smile} get Smile, which writes each field name once per response and
+ * back-references repeated short values such as the empty slot marker.
+ */
+@Component
+public class ResponseFormats {
+
+	public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+	public static final MediaType SMILE = MediaType.valueOf(SMILE_VALUE);
+
+	private final ObjectMapper jsonMapper;
+
+	private final ObjectMapper smileMapper;
+
+	private final MappingJackson2SmileHttpMessageConverter smileConverter;
+
+	@Autowired
+	public ResponseFormats(ObjectMapper jsonMapper) {
+		this.jsonMapper = jsonMapper;
+		SmileFactory smileFactory = new SmileFactory();
+		smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+		// Not a bean, a second ObjectMapper in the context would switch off Boot's own
+		this.smileMapper = Jackson2ObjectMapperBuilder.smile().factory(smileFactory).build();
+		this.smileConverter = new MappingJackson2SmileHttpMessageConverter(smileMapper);
+	}
+
+	/**
+	 * Whether the Accept header asks for Smile over JSON. Wildcards resolve to JSON so clients that do not care
+	 * keep getting what they always got.
+	 */
+	public boolean isSmile(String accept) {
+		if (accept == null || accept.indexOf(SMILE_VALUE) < 0) {
+			return false;
+		}
+		List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+		MediaType.sortBySpecificityAndQuality(mediaTypes);
+		for (MediaType mediaType : mediaTypes) {
+			if (mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+				return false;
+			}
+			if (SMILE.includes(mediaType)) {
+				return true;
+			}
+			if (MediaType.APPLICATION_JSON.includes(mediaType)) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	public ObjectMapper mapperFor(String accept) {
+		return isSmile(accept) ? smileMapper : jsonMapper;
+	}
+
+	public MediaType contentTypeFor(String accept) {
+		return isSmile(accept) ? SMILE : MediaType.APPLICATION_JSON_UTF8;
+	}
+
+	/**
+	 * Encodes values the way the message converters would for the given content type, for responses that are
+	 * cached as bytes.
+	 */
+	public <T> Function<T, byte[]> encoder(MediaType contentType) {
+		ObjectMapper mapper = SMILE.includes(contentType) ? smileMapper : jsonMapper;
+		return value -> {
+			try {
+				return mapper.writeValueAsBytes(value);
+			} catch (JsonProcessingException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	public MappingJackson2SmileHttpMessageConverter getSmileConverter() {
+		return smileConverter;
+	}
+}
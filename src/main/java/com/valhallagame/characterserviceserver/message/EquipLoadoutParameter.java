@@ -0,0 +1,26 @@
+package com.valhallagame.characterserviceserver.message;
+
+import com.valhallagame.characterserviceclient.message.EquippedItemParameter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EquipLoadoutParameter {
+	@NotNull
+	private String characterName;
+
+	@Valid
+	@NotNull
+	private List<EquippedItemParameter> itemsToEquip = new ArrayList<>();
+
+	@NotNull
+	private List<String> itemSlotsToUnequip = new ArrayList<>();
+}
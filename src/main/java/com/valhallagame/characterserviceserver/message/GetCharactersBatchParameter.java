@@ -0,0 +1,18 @@
+package com.valhallagame.characterserviceserver.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetCharactersBatchParameter {
+	@NotNull
+	@Size(min = 1, max = 100)
+	private List<String> characterNames;
+}
@@ -0,0 +1,48 @@
+package com.valhallagame.characterserviceserver.metrics;
+
+import com.valhallagame.characterserviceserver.accesslog.AccessLog;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the latency of every request by its mapped path and hands the request to the {@link AccessLog}. The
+ * start time survives the async dispatch of {@code DeferredResult} handlers, so those are measured end to end as
+ * well.
+ */
+public class EndpointLatencyInterceptor extends HandlerInterceptorAdapter {
+	private static final String START_ATTRIBUTE = EndpointLatencyInterceptor.class.getName() + ".start";
+
+	private final LatencyRegistry latencyRegistry;
+
+	private final AccessLog accessLog;
+
+	public EndpointLatencyInterceptor(LatencyRegistry latencyRegistry, AccessLog accessLog) {
+		this.latencyRegistry = latencyRegistry;
+		this.accessLog = accessLog;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (request.getAttribute(START_ATTRIBUTE) == null) {
+			request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+								Exception ex) {
+		Object start = request.getAttribute(START_ATTRIBUTE);
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		if (start == null || pattern == null) {
+			return;
+		}
+		long nanos = System.nanoTime() - (Long) start;
+		int status = ex != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+		latencyRegistry.histogram("endpoints", pattern.toString()).record(nanos, status >= 500);
+		accessLog.record(pattern.toString(), AccessLog.taggedCharacter(request), status, nanos);
+	}
+}
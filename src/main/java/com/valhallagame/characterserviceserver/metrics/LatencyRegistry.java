@@ -0,0 +1,40 @@
+package com.valhallagame.characterserviceserver.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency histograms grouped by what is measured, e.g. "endpoints" or "repository". Callers on a hot path should
+ * look their histogram up once and keep it rather than build a name per sample.
+ */
+@Component
+public class LatencyRegistry {
+
+	private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> groups = new ConcurrentHashMap<>();
+
+	public LatencyHistogram histogram(String group, String name) {
+		ConcurrentMap<String, LatencyHistogram> histograms = groups.get(group);
+		if (histograms == null) {
+			histograms = groups.computeIfAbsent(group, key -> new ConcurrentHashMap<>());
+		}
+		LatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+		}
+		return histogram;
+	}
+
+	public Map<String, Map<String, Map<String, Object>>> snapshot() {
+		Map<String, Map<String, Map<String, Object>>> snapshot = new TreeMap<>();
+		groups.forEach((group, histograms) -> {
+			Map<String, Map<String, Object>> summaries = new TreeMap<>();
+			histograms.forEach((name, histogram) -> summaries.put(name, histogram.snapshot()));
+			snapshot.put(group, summaries);
+		});
+		return snapshot;
+	}
+}
@@ -0,0 +1,43 @@
+package com.valhallagame.characterserviceserver.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times every call through a repository proxy, one histogram per repository method.
+ */
+public class RepositoryLatencyInterceptor implements MethodInterceptor {
+
+	private final LatencyRegistry latencyRegistry;
+
+	private final String repositoryName;
+
+	private final ConcurrentMap<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	public RepositoryLatencyInterceptor(LatencyRegistry latencyRegistry, String repositoryName) {
+		this.latencyRegistry = latencyRegistry;
+		this.repositoryName = repositoryName;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		LatencyHistogram histogram = histograms.get(invocation.getMethod());
+		if (histogram == null) {
+			histogram = histograms.computeIfAbsent(invocation.getMethod(), method ->
+					latencyRegistry.histogram("repository", repositoryName + "." + method.getName()));
+		}
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = invocation.proceed();
+			failed = false;
+			return result;
+		} finally {
+			histogram.record(System.nanoTime() - start, failed);
+		}
+	}
+}
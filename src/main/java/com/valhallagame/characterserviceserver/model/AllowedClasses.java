@@ -0,0 +1,45 @@
+package com.valhallagame.characterserviceserver.model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public enum AllowedClasses {
+	WARRIOR,
+	SHAMAN,
+	RANGER,
+	DEBUG;
+
+	private static final Map<String, AllowedClasses> BY_NAME = new HashMap<>();
+
+	static {
+		// Both spellings clients actually send, so the common case is a single lookup without case conversion
+		for (AllowedClasses characterClass : values()) {
+			BY_NAME.put(characterClass.name(), characterClass);
+			BY_NAME.put(characterClass.name().toLowerCase(Locale.ROOT), characterClass);
+		}
+	}
+
+	/**
+	 * Parses a class name in any case, returning null instead of throwing for unknown names.
+	 */
+	public static AllowedClasses fromString(String enumStringValue) {
+		if (enumStringValue == null) {
+			return null;
+		}
+		AllowedClasses characterClass = BY_NAME.get(enumStringValue);
+		return characterClass != null ? characterClass : BY_NAME.get(enumStringValue.toUpperCase(Locale.ROOT));
+	}
+
+	public static AllowedClasses get(String enumStringValue){
+		AllowedClasses characterClass = fromString(enumStringValue);
+		if (characterClass == null) {
+			throw new IllegalArgumentException("No class named " + enumStringValue);
+		}
+		return characterClass;
+	}
+
+	public static boolean has(String enumStringValue){
+		return fromString(enumStringValue) != null;
+	}
+}
@@ -1,5 +1,6 @@
 package com.valhallagame.characterserviceserver.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -7,6 +8,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Data
@@ -71,4 +73,77 @@ public class Character {
 
 	@Column(name = "off_hand_armament_meta_data")
 	private String offHandArmamentMetaData;
+
+	// Dictionary ids of the slot items, see ItemDictionary. Written next to the item names until those columns
+	// are dropped, and kept out of the API responses like the version.
+	@JsonIgnore
+	@Column(name = "head_item_id")
+	private Short headItemId;
+
+	@JsonIgnore
+	@Column(name = "beard_item_id")
+	private Short beardItemId;
+
+	@JsonIgnore
+	@Column(name = "chest_item_id")
+	private Short chestItemId;
+
+	@JsonIgnore
+	@Column(name = "hands_item_id")
+	private Short handsItemId;
+
+	@JsonIgnore
+	@Column(name = "legs_item_id")
+	private Short legsItemId;
+
+	@JsonIgnore
+	@Column(name = "feet_item_id")
+	private Short feetItemId;
+
+	@JsonIgnore
+	@Column(name = "mainhand_armament_id")
+	private Short mainhandArmamentId;
+
+	@JsonIgnore
+	@Column(name = "off_hand_armament_id")
+	private Short offHandArmamentId;
+
+	/**
+	 * Bumped on every write. Used for optimistic locking and kept out of the API responses.
+	 */
+	@Version
+	@JsonIgnore
+	@Column(name = "version")
+	private long version;
+
+	public Character(Character other) {
+		this.characterName = other.characterName;
+		this.ownerUsername = other.ownerUsername;
+		this.displayCharacterName = other.displayCharacterName;
+		this.headItem = other.headItem;
+		this.headItemMetaData = other.headItemMetaData;
+		this.beardItem = other.beardItem;
+		this.beardItemMetaData = other.beardItemMetaData;
+		this.chestItem = other.chestItem;
+		this.chestItemMetaData = other.chestItemMetaData;
+		this.handsItem = other.handsItem;
+		this.handsItemMetaData = other.handsItemMetaData;
+		this.legsItem = other.legsItem;
+		this.legsItemMetaData = other.legsItemMetaData;
+		this.feetItem = other.feetItem;
+		this.feetItemMetaData = other.feetItemMetaData;
+		this.mainhandArmament = other.mainhandArmament;
+		this.mainhandArmamentMetaData = other.mainhandArmamentMetaData;
+		this.offHandArmament = other.offHandArmament;
+		this.offHandArmamentMetaData = other.offHandArmamentMetaData;
+		this.headItemId = other.headItemId;
+		this.beardItemId = other.beardItemId;
+		this.chestItemId = other.chestItemId;
+		this.handsItemId = other.handsItemId;
+		this.legsItemId = other.legsItemId;
+		this.feetItemId = other.feetItemId;
+		this.mainhandArmamentId = other.mainhandArmamentId;
+		this.offHandArmamentId = other.offHandArmamentId;
+		this.version = other.version;
+	}
 }
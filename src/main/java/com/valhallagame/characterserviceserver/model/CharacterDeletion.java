@@ -0,0 +1,18 @@
+package com.valhallagame.characterserviceserver.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of deleting a character together with moving its owner's selection.
+ */
+@Getter
+@AllArgsConstructor
+public class CharacterDeletion {
+	private final boolean deleted;
+
+	/**
+	 * The character that became selected because the deleted one was, or null if the selection did not move.
+	 */
+	private final String selectedCharacterName;
+}
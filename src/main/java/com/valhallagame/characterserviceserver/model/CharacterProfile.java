@@ -0,0 +1,22 @@
+package com.valhallagame.characterserviceserver.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything other services know about a character, as last seen in their events.
+ */
+@Data
+public class CharacterProfile {
+	private final String characterName;
+
+	private final List<String> traits = new ArrayList<>();
+
+	private final Map<String, Long> currencies = new LinkedHashMap<>();
+
+	private final List<String> recipes = new ArrayList<>();
+}
@@ -0,0 +1,151 @@
+package com.valhallagame.characterserviceserver.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The equipment slots of a {@link Character}, each with direct accessors for its item, item id and meta data
+ * fields and the columns they are stored in. Slot names arrive as strings from the API and are parsed once with
+ * {@link #fromString(String)}; everything past that works on the enum.
+ */
+public enum ItemSlot {
+	MAINHAND("mainhand_armament",
+			Character::getMainhandArmament, Character::setMainhandArmament,
+			Character::getMainhandArmamentMetaData, Character::setMainhandArmamentMetaData,
+			Character::getMainhandArmamentId, Character::setMainhandArmamentId),
+	OFFHAND("off_hand_armament",
+			Character::getOffHandArmament, Character::setOffHandArmament,
+			Character::getOffHandArmamentMetaData, Character::setOffHandArmamentMetaData,
+			Character::getOffHandArmamentId, Character::setOffHandArmamentId),
+	HEAD("head_item",
+			Character::getHeadItem, Character::setHeadItem,
+			Character::getHeadItemMetaData, Character::setHeadItemMetaData,
+			Character::getHeadItemId, Character::setHeadItemId),
+	BEARD("beard_item",
+			Character::getBeardItem, Character::setBeardItem,
+			Character::getBeardItemMetaData, Character::setBeardItemMetaData,
+			Character::getBeardItemId, Character::setBeardItemId),
+	CHEST("chest_item",
+			Character::getChestItem, Character::setChestItem,
+			Character::getChestItemMetaData, Character::setChestItemMetaData,
+			Character::getChestItemId, Character::setChestItemId),
+	HANDS("hands_item",
+			Character::getHandsItem, Character::setHandsItem,
+			Character::getHandsItemMetaData, Character::setHandsItemMetaData,
+			Character::getHandsItemId, Character::setHandsItemId),
+	LEGS("legs_item",
+			Character::getLegsItem, Character::setLegsItem,
+			Character::getLegsItemMetaData, Character::setLegsItemMetaData,
+			Character::getLegsItemId, Character::setLegsItemId),
+	FEET("feet_item",
+			Character::getFeetItem, Character::setFeetItem,
+			Character::getFeetItemMetaData, Character::setFeetItemMetaData,
+			Character::getFeetItemId, Character::setFeetItemId);
+
+	/**
+	 * What an unequipped slot holds.
+	 */
+	public static final String EMPTY_ITEM = "None";
+
+	private static final ItemSlot[] SLOTS = values();
+
+	private static final Map<String, ItemSlot> BY_NAME = new HashMap<>();
+
+	static {
+		for (ItemSlot slot : SLOTS) {
+			BY_NAME.put(slot.name(), slot);
+		}
+	}
+
+	private final String column;
+
+	private final String metaDataColumn;
+
+	private final String itemIdColumn;
+
+	private final Function<Character, String> itemGetter;
+
+	private final BiConsumer<Character, String> itemSetter;
+
+	private final Function<Character, String> metaDataGetter;
+
+	private final BiConsumer<Character, String> metaDataSetter;
+
+	private final Function<Character, Short> itemIdGetter;
+
+	private final BiConsumer<Character, Short> itemIdSetter;
+
+	ItemSlot(String column, Function<Character, String> itemGetter, BiConsumer<Character, String> itemSetter,
+			 Function<Character, String> metaDataGetter, BiConsumer<Character, String> metaDataSetter,
+			 Function<Character, Short> itemIdGetter, BiConsumer<Character, Short> itemIdSetter) {
+		this.column = column;
+		this.metaDataColumn = column + "_meta_data";
+		this.itemIdColumn = column + "_id";
+		this.itemGetter = itemGetter;
+		this.itemSetter = itemSetter;
+		this.metaDataGetter = metaDataGetter;
+		this.metaDataSetter = metaDataSetter;
+		this.itemIdGetter = itemIdGetter;
+		this.itemIdSetter = itemIdSetter;
+	}
+
+	/**
+	 * Meta data as it is stored: absent rather than empty.
+	 */
+	public static String normalizeMetaData(String metaData) {
+		return metaData == null || metaData.isEmpty() ? null : metaData;
+	}
+
+	/**
+	 * Parses a slot name as sent by clients, returning null instead of throwing for unknown names.
+	 */
+	public static ItemSlot fromString(String itemSlot) {
+		return itemSlot == null ? null : BY_NAME.get(itemSlot);
+	}
+
+	/**
+	 * Same as {@link #values()} without the defensive copy.
+	 */
+	public static ItemSlot[] slots() {
+		return SLOTS;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	public String getMetaDataColumn() {
+		return metaDataColumn;
+	}
+
+	public String getItemIdColumn() {
+		return itemIdColumn;
+	}
+
+	public String getItem(Character character) {
+		return itemGetter.apply(character);
+	}
+
+	public String getMetaData(Character character) {
+		return metaDataGetter.apply(character);
+	}
+
+	public Short getItemId(Character character) {
+		return itemIdGetter.apply(character);
+	}
+
+	public void setItemId(Character character, Short itemId) {
+		itemIdSetter.accept(character, itemId);
+	}
+
+	public void equip(Character character, String item, String metaData) {
+		itemSetter.accept(character, item);
+		metaDataSetter.accept(character, normalizeMetaData(metaData));
+	}
+
+	public void unequip(Character character) {
+		equip(character, EMPTY_ITEM, null);
+	}
+}
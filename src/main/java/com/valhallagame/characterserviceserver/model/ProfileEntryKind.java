@@ -0,0 +1,19 @@
+package com.valhallagame.characterserviceserver.model;
+
+/**
+ * What a row in the character profile projection describes.
+ */
+public enum ProfileEntryKind {
+	/**
+	 * An unlocked trait, keyed by trait type.
+	 */
+	TRAIT,
+	/**
+	 * A currency balance, keyed by currency type with the amount as value.
+	 */
+	CURRENCY,
+	/**
+	 * A known recipe, keyed by recipe name.
+	 */
+	RECIPE
+}
@@ -0,0 +1,17 @@
+package com.valhallagame.characterserviceserver.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The item and meta data to write into one slot.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SlotAssignment {
+	private final String item;
+
+	private final String metaData;
+}
@@ -0,0 +1,332 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import com.valhallagame.characterserviceserver.metrics.LatencyHistogram;
+import com.valhallagame.characterserviceserver.metrics.LatencyRegistry;
+import com.valhallagame.common.rabbitmq.NotificationMessage;
+import com.valhallagame.common.rabbitmq.RabbitMQRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.CorrelationData;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes notifications on the character exchange from a dedicated thread so that request threads never wait
+ * on the broker. Events are queued in a bounded buffer and drained in batches. Each batch is published in queue
+ * order on one channel, followed by a single wait for the broker's confirms. A batch that is not confirmed in
+ * full goes back to the front of the line, ahead of anything queued after it, and is sent again, so events keep
+ * their order but can arrive twice; events are dropped after a few attempts. When the buffer is full the caller
+ * publishes synchronously instead, which is the back-pressure, and that event can overtake the queued ones.
+ */
+@Component
+public class CharacterEventPublisher {
+	private static final Logger logger = LoggerFactory.getLogger(CharacterEventPublisher.class);
+
+	private static final String EXCHANGE = RabbitMQRouting.Exchange.CHARACTER.name();
+
+	private static final int MAX_ATTEMPTS = 3;
+
+	private final RabbitTemplate rabbitTemplate;
+
+	private final LatencyRegistry latencyRegistry;
+
+	private final LatencyHistogram batchLatency;
+
+	private final BlockingQueue<Event> queue;
+
+	// Events that have to go out again before anything in the queue
+	private final Deque<Event> retries = new ConcurrentLinkedDeque<>();
+
+	private final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
+
+	private final int batchSize;
+
+	private final long offerTimeoutMs;
+
+	private final long confirmTimeoutMs;
+
+	private final Map<String, Event> unconfirmed = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final LongAdder published = new LongAdder();
+
+	private final LongAdder confirmed = new LongAdder();
+
+	private final LongAdder nacked = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder publishedByCaller = new LongAdder();
+
+	private final LongAdder batches = new LongAdder();
+
+	private volatile boolean running;
+
+	private Thread publisherThread;
+
+	@Autowired
+	public CharacterEventPublisher(RabbitTemplate rabbitTemplate, LatencyRegistry latencyRegistry,
+								   @Value("${character.events.queue-capacity:10000}") int queueCapacity,
+								   @Value("${character.events.batch-size:100}") int batchSize,
+								   @Value("${character.events.offer-timeout-ms:50}") long offerTimeoutMs,
+								   @Value("${character.events.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+		this.rabbitTemplate = rabbitTemplate;
+		this.latencyRegistry = latencyRegistry;
+		this.batchLatency = latencyRegistry.histogram("rabbit", "batch");
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.offerTimeoutMs = offerTimeoutMs;
+		this.confirmTimeoutMs = confirmTimeoutMs;
+	}
+
+	@PostConstruct
+	public void start() {
+		rabbitTemplate.setConfirmCallback(this::confirm);
+		running = true;
+		publisherThread = new Thread(this::run, "character-event-publisher");
+		publisherThread.setDaemon(true);
+		publisherThread.start();
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		publisherThread.interrupt();
+		publisherThread.join(TimeUnit.SECONDS.toMillis(5));
+	}
+
+	public void publish(RabbitMQRouting.Character routingKey, NotificationMessage message) {
+		publish(routingKey.name(), message);
+	}
+
+	public void publish(String routingKey, NotificationMessage message) {
+		Event event = new Event(routingKey, message);
+		try {
+			if (queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		publishedByCaller.increment();
+		send(event);
+	}
+
+	/**
+	 * Publishes the events right away on the calling thread, in order on one channel, with a single wait for the
+	 * broker's confirms. Returns whether all of them were confirmed; nothing is retried, that is left to the
+	 * caller. Throws when the channel fails or the confirms time out, in which case any of them may have arrived.
+	 */
+	boolean publishConfirmed(List<Event> events) {
+		long start = System.nanoTime();
+		boolean acked = false;
+		try {
+			acked = sendInOrder(events);
+		} finally {
+			batchLatency.record(System.nanoTime() - start, !acked);
+		}
+		published.add(events.size());
+		if (acked) {
+			confirmed.add(events.size());
+		} else {
+			nacked.add(events.size());
+		}
+		return acked;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("queued", queue.size());
+		stats.put("retrying", retries.size());
+		stats.put("remainingCapacity", queue.remainingCapacity());
+		stats.put("unconfirmed", unconfirmed.size());
+		stats.put("published", published.sum());
+		stats.put("confirmed", confirmed.sum());
+		stats.put("nacked", nacked.sum());
+		stats.put("dropped", dropped.sum());
+		stats.put("publishedByCaller", publishedByCaller.sum());
+		stats.put("batches", batches.sum());
+		return stats;
+	}
+
+	private void run() {
+		List<Event> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty() || !retries.isEmpty()) {
+			try {
+				nextBatch(batch);
+				if (!batch.isEmpty()) {
+					publishBatch(batch);
+				}
+			} catch (InterruptedException e) {
+				if (running) {
+					logger.warn("Character event publisher interrupted while running");
+				}
+				// Drain what is left on shutdown, the flag ends the loop once the queue is empty
+				running = false;
+			} catch (RuntimeException e) {
+				logger.error("Failed to publish batch of " + batch.size() + " character events", e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Fills the batch with the events to retry first and then the queued ones, in order. Only blocks while both
+	 * are empty.
+	 */
+	private void nextBatch(List<Event> batch) throws InterruptedException {
+		Event retry;
+		while (batch.size() < batchSize && (retry = retries.pollFirst()) != null) {
+			batch.add(retry);
+		}
+		if (batch.isEmpty()) {
+			Event first = queue.poll(1, TimeUnit.SECONDS);
+			if (first == null) {
+				return;
+			}
+			batch.add(first);
+		}
+		queue.drainTo(batch, batchSize - batch.size());
+	}
+
+	private void publishBatch(List<Event> batch) {
+		long start = System.nanoTime();
+		boolean acked;
+		try {
+			acked = sendInOrder(batch);
+		} catch (RuntimeException e) {
+			// Includes the confirms timing out, whatever was sent may or may not have arrived
+			batchLatency.record(System.nanoTime() - start, true);
+			retryBatch(batch, e.getMessage());
+			return;
+		}
+		batchLatency.record(System.nanoTime() - start, !acked);
+		batches.increment();
+		published.add(batch.size());
+		if (acked) {
+			confirmed.add(batch.size());
+		} else {
+			nacked.add(batch.size());
+			retryBatch(batch, "nacked by the broker");
+		}
+	}
+
+	private boolean sendInOrder(List<Event> events) {
+		return rabbitTemplate.execute(channel -> {
+			for (Event event : events) {
+				event.attempts++;
+				Message message = rabbitTemplate.getMessageConverter().toMessage(event.message,
+						new MessageProperties());
+				channel.basicPublish(EXCHANGE, event.routingKey, false,
+						messagePropertiesConverter.fromMessageProperties(message.getMessageProperties(),
+								StandardCharsets.UTF_8.name()),
+						message.getBody());
+			}
+			return channel.waitForConfirms(confirmTimeoutMs);
+		});
+	}
+
+	/**
+	 * Puts a batch back at the front of the line in its order. The broker only says whether the whole batch was
+	 * confirmed, so all of it goes out again.
+	 */
+	private void retryBatch(List<Event> batch, String cause) {
+		for (int i = batch.size() - 1; i >= 0; i--) {
+			Event event = batch.get(i);
+			if (event.attempts < MAX_ATTEMPTS) {
+				retries.addFirst(event);
+			} else {
+				drop(event, cause);
+			}
+		}
+	}
+
+	private void send(Event event) {
+		String id = Long.toString(sequence.incrementAndGet());
+		event.attempts++;
+		unconfirmed.put(id, event);
+		LatencyHistogram latency = latencyRegistry.histogram("rabbit", event.routingKey);
+		long start = System.nanoTime();
+		try {
+			rabbitTemplate.convertAndSend(EXCHANGE, event.routingKey, event.message, new CorrelationData(id));
+			latency.record(System.nanoTime() - start, false);
+			published.increment();
+		} catch (RuntimeException e) {
+			latency.record(System.nanoTime() - start, true);
+			unconfirmed.remove(id);
+			retryOrDrop(event, e.getMessage());
+		}
+	}
+
+	private void confirm(CorrelationData correlationData, boolean ack, String cause) {
+		if (correlationData == null) {
+			// Sent through the template by someone else
+			return;
+		}
+		Event event = unconfirmed.remove(correlationData.getId());
+		if (event == null) {
+			return;
+		}
+		if (ack) {
+			confirmed.increment();
+		} else {
+			nacked.increment();
+			retryOrDrop(event, cause);
+		}
+	}
+
+	/**
+	 * For the events published by the caller. They were never in line, so they are retried behind the batches
+	 * that are already waiting.
+	 */
+	private void retryOrDrop(Event event, String cause) {
+		if (event.attempts < MAX_ATTEMPTS) {
+			retries.addLast(event);
+			return;
+		}
+		drop(event, cause);
+	}
+
+	private void drop(Event event, String cause) {
+		dropped.increment();
+		logger.error("Dropped {} notification {} after {} attempts: {}", event.routingKey, event.message,
+				event.attempts, cause);
+	}
+
+	static class Event {
+		private final String routingKey;
+
+		private final NotificationMessage message;
+
+		private volatile int attempts;
+
+		Event(String routingKey, NotificationMessage message) {
+			this.routingKey = routingKey;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import com.valhallagame.characterserviceserver.service.CharacterCache;
+import com.valhallagame.characterserviceserver.service.CharacterNameIndex;
+import com.valhallagame.characterserviceserver.service.RecentWrites;
+import com.valhallagame.characterserviceserver.sharding.ShardRouter;
+import com.valhallagame.common.rabbitmq.NotificationMessage;
+import com.valhallagame.common.rabbitmq.RabbitMQRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CharacterNotificationConsumer {
+
+	private static final Logger logger = LoggerFactory.getLogger(CharacterNotificationConsumer.class);
+
+	@Autowired
+	private CharacterCache characterCache;
+
+	@Autowired
+	private CharacterNameIndex characterNameIndex;
+
+	@Autowired
+	private ShardRouter shardRouter;
+
+	@Autowired
+	private RecentWrites recentWrites;
+
+	@RabbitListener(queues = "#{characterCacheQueue.name}", containerFactory = "containerFactory")
+	public void receiveCharacterNotification(NotificationMessage message,
+											 @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey) {
+		Object origin = message.getData().get("origin");
+		if (characterCache.getNodeId().equals(origin)) {
+			return;
+		}
+		logger.debug("Received {} notification {}", routingKey, message);
+
+		Object characterName = message.getData().get("characterName");
+		// Replicas may not have the other node's write yet, keep reads about it on the primary for a while
+		recentWrites.characterWritten(characterName == null ? null : characterName.toString(), message.getUsername());
+		characterCache.evict(characterName == null ? null : characterName.toString(), message.getUsername());
+		if (characterName != null) {
+			// Another node may have deleted, moved or given away the character
+			shardRouter.forget(characterName.toString());
+			if (RabbitMQRouting.Character.DELETE.name().equals(routingKey)) {
+				characterNameIndex.remove(characterName.toString());
+			} else {
+				characterNameIndex.add(characterName.toString());
+			}
+		}
+	}
+}
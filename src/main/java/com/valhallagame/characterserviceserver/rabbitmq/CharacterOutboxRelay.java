@@ -0,0 +1,174 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.valhallagame.characterserviceserver.sharding.ShardRouter;
+import com.valhallagame.common.rabbitmq.NotificationMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Moves events from the {@code character_outbox} table to the character exchange. Only the node holding the
+ * relay lease of a database, a Postgres advisory lock, relays its outbox; the others skip it until the lease is
+ * free again, which also happens when the holder's connection dies. The holder reads the oldest rows, publishes
+ * them in id order on one channel, waits once for the broker to confirm the whole batch and deletes it. No
+ * transaction is open and no row is locked while it waits on the broker. Delivery is at least once: a batch that
+ * is not confirmed in full stays in the table and is sent again, in the same order, on a later poll, so events
+ * can arrive twice but a retried event is never overtaken by a later one.
+ */
+@Component
+public class CharacterOutboxRelay {
+	private static final Logger logger = LoggerFactory.getLogger(CharacterOutboxRelay.class);
+
+	// Any key works as long as nothing else in the database takes advisory locks with it
+	private static final long LEASE_KEY = 0x636861725f6f7574L;
+
+	private static final String TRY_LEASE = "SELECT pg_try_advisory_lock(?)";
+
+	private static final String RELEASE_LEASE = "SELECT pg_advisory_unlock(?)";
+
+	private static final String SELECT_BATCH = "SELECT id, routing_key, payload FROM character_outbox"
+			+ " ORDER BY id LIMIT ?";
+
+	private static final String DELETE_CONFIRMED = "DELETE FROM character_outbox WHERE id IN (:ids)";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final CharacterEventPublisher eventPublisher;
+
+	private final ShardRouter shardRouter;
+
+	private final int batchSize;
+
+	private final LongAdder relayed = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder leaseTaken = new LongAdder();
+
+	@Autowired
+	public CharacterOutboxRelay(JdbcTemplate jdbcTemplate, CharacterEventPublisher eventPublisher,
+								ShardRouter shardRouter,
+								@Value("${character.outbox.batch-size:100}") int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.eventPublisher = eventPublisher;
+		this.shardRouter = shardRouter;
+		this.batchSize = batchSize;
+	}
+
+	@Scheduled(fixedDelayString = "${character.outbox.poll-interval-ms:200}")
+	public void poll() {
+		// Every shard has its own outbox, a failing one does not hold up the others
+		shardRouter.onEachShard(() -> {
+			try {
+				jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+					// The lease belongs to this connection, so everything until it is released runs on it
+					JdbcTemplate leased = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+					if (!leased.queryForObject(TRY_LEASE, Boolean.class, LEASE_KEY)) {
+						return null;
+					}
+					leaseTaken.increment();
+					try {
+						// Keep draining while batches come back full, an idle table costs a single query per poll
+						int relayedInBatch;
+						do {
+							relayedInBatch = relayBatch(leased);
+						} while (relayedInBatch == batchSize);
+					} finally {
+						leased.queryForObject(RELEASE_LEASE, Boolean.class, LEASE_KEY);
+					}
+					return null;
+				});
+			} catch (RuntimeException e) {
+				logger.error("Failed to relay character outbox", e);
+			}
+		});
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("relayed", relayed.sum());
+		stats.put("failed", failed.sum());
+		stats.put("leaseTaken", leaseTaken.sum());
+		return stats;
+	}
+
+	/**
+	 * Runs without a transaction, each statement on its own, so nothing is held open while the broker confirms.
+	 */
+	private int relayBatch(JdbcTemplate leased) {
+		List<OutboxRow> rows = leased.query(SELECT_BATCH,
+				(rs, rowNum) -> new OutboxRow(rs.getLong("id"), rs.getString("routing_key"), rs.getString("payload")),
+				batchSize);
+		if (rows.isEmpty()) {
+			return 0;
+		}
+
+		List<CharacterEventPublisher.Event> events = new ArrayList<>(rows.size());
+		for (OutboxRow row : rows) {
+			events.add(new CharacterEventPublisher.Event(row.routingKey, read(row)));
+		}
+		if (!isConfirmed(events, rows)) {
+			failed.increment();
+			return 0;
+		}
+
+		List<Long> done = rows.stream().map(row -> row.id).collect(Collectors.toList());
+		new NamedParameterJdbcTemplate(leased).update(DELETE_CONFIRMED, Collections.singletonMap("ids", done));
+		relayed.add(done.size());
+		return done.size();
+	}
+
+	private NotificationMessage read(OutboxRow row) {
+		try {
+			return objectMapper.readValue(row.payload, NotificationMessage.class);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unreadable payload in character outbox row " + row.id, e);
+		}
+	}
+
+	private boolean isConfirmed(List<CharacterEventPublisher.Event> events, List<OutboxRow> rows) {
+		String range = "character outbox rows " + rows.get(0).id + " to " + rows.get(rows.size() - 1).id;
+		try {
+			if (eventPublisher.publishConfirmed(events)) {
+				return true;
+			}
+			logger.warn("Broker nacked events from {}", range);
+		} catch (RuntimeException e) {
+			logger.warn("Could not publish events from {}: {}", range, e.toString());
+		}
+		return false;
+	}
+
+	private static class OutboxRow {
+		private final long id;
+
+		private final String routingKey;
+
+		private final String payload;
+
+		private OutboxRow(long id, String routingKey, String payload) {
+			this.id = id;
+			this.routingKey = routingKey;
+			this.payload = payload;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import com.valhallagame.characterserviceserver.repository.CharacterProfileRepository;
+import com.valhallagame.common.rabbitmq.NotificationMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the character profile projection up to date from trait, currency and recipe events. The queue is shared
+ * by all nodes, so every event is applied once, and acknowledged in batches by {@code profileContainerFactory}.
+ * Only one node consumes at a time, an exclusive consumer, so the events of a character are applied in order;
+ * the other nodes keep trying to consume and the first to succeed takes over when that node goes away.
+ */
+@Component
+public class CharacterProfileConsumer {
+
+	private static final Logger logger = LoggerFactory.getLogger(CharacterProfileConsumer.class);
+
+	@Autowired
+	private ProfileEventRouting profileEventRouting;
+
+	@Autowired
+	private CharacterProfileRepository characterProfileRepository;
+
+	@RabbitListener(queues = "#{characterProfileQueue.name}", containerFactory = "profileContainerFactory",
+			exclusive = true)
+	public void receiveProfileEvent(NotificationMessage message,
+									@Header(AmqpHeaders.RECEIVED_EXCHANGE) String exchange,
+									@Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey) {
+		ProfileEventRouting.Route route = profileEventRouting.get(exchange, routingKey);
+		if (route == null) {
+			return;
+		}
+
+		Object characterName = message.getData().get("characterName");
+		Object key = message.getData().get(route.getKeyField());
+		if (characterName == null || key == null) {
+			logger.warn("Ignoring {}/{} event without characterName or {}: {}", exchange, routingKey,
+					route.getKeyField(), message);
+			return;
+		}
+
+		String name = characterName.toString().toLowerCase();
+		if (route.getAction() == ProfileEventRouting.Action.REMOVE) {
+			characterProfileRepository.removeEntry(name, route.getKind(), key.toString());
+		} else {
+			Object amount = message.getData().get("amount");
+			Long value = amount instanceof Number ? ((Number) amount).longValue() : null;
+			characterProfileRepository.putEntry(name, route.getKind(), key.toString(), value);
+		}
+	}
+}
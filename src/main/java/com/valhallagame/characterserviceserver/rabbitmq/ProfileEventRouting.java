@@ -0,0 +1,82 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import com.valhallagame.characterserviceserver.model.ProfileEntryKind;
+import com.valhallagame.common.rabbitmq.RabbitMQRouting;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Which events from the trait, currency and recipe exchanges feed the character profile projection and what
+ * each of them does to it. Exchanges and routing keys come from the shared {@link RabbitMQRouting} enums that the
+ * publishing services use; the message data is expected to carry {@code characterName} and the field named by
+ * the route.
+ */
+@Component
+public class ProfileEventRouting {
+
+	public enum Action {
+		PUT, REMOVE
+	}
+
+	private final Map<String, Map<String, Route>> routes = new HashMap<>();
+
+	public ProfileEventRouting() {
+		add(RabbitMQRouting.Exchange.TRAIT, RabbitMQRouting.Trait.UNLOCK,
+				new Route(ProfileEntryKind.TRAIT, Action.PUT, "traitType"));
+		add(RabbitMQRouting.Exchange.TRAIT, RabbitMQRouting.Trait.LOCK,
+				new Route(ProfileEntryKind.TRAIT, Action.REMOVE, "traitType"));
+		add(RabbitMQRouting.Exchange.CURRENCY, RabbitMQRouting.Currency.UPDATE,
+				new Route(ProfileEntryKind.CURRENCY, Action.PUT, "currencyType"));
+		add(RabbitMQRouting.Exchange.RECIPE, RabbitMQRouting.Recipe.ADD,
+				new Route(ProfileEntryKind.RECIPE, Action.PUT, "recipeName"));
+		add(RabbitMQRouting.Exchange.RECIPE, RabbitMQRouting.Recipe.REMOVE,
+				new Route(ProfileEntryKind.RECIPE, Action.REMOVE, "recipeName"));
+	}
+
+	/**
+	 * Returns the route for an event, or null if the projection does not care about it.
+	 */
+	public Route get(String exchange, String routingKey) {
+		return routes.getOrDefault(exchange, Collections.emptyMap()).get(routingKey);
+	}
+
+	/**
+	 * Every route by exchange and routing key, which is also what the profile queue is bound to.
+	 */
+	public Map<String, Map<String, Route>> getRoutes() {
+		return Collections.unmodifiableMap(routes);
+	}
+
+	private void add(RabbitMQRouting.Exchange exchange, Enum<?> routingKey, Route route) {
+		routes.computeIfAbsent(exchange.name(), key -> new HashMap<>()).put(routingKey.name(), route);
+	}
+
+	public static class Route {
+		private final ProfileEntryKind kind;
+
+		private final Action action;
+
+		private final String keyField;
+
+		private Route(ProfileEntryKind kind, Action action, String keyField) {
+			this.kind = kind;
+			this.action = action;
+			this.keyField = keyField;
+		}
+
+		public ProfileEntryKind getKind() {
+			return kind;
+		}
+
+		public Action getAction() {
+			return action;
+		}
+
+		public String getKeyField() {
+			return keyField;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.valhallagame.characterserviceserver.replica;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One streaming replica and what the {@link ReplicaLagMonitor} last found out about it. A replica starts out
+ * unusable and is only read from once a check has seen it within the lag bound.
+ */
+public class Replica {
+	private final String name;
+
+	private final DataSource dataSource;
+
+	private final LongAdder reads = new LongAdder();
+
+	private volatile long lagMs = -1;
+
+	private volatile boolean usable;
+
+	public Replica(String name, DataSource dataSource) {
+		this.name = name;
+		this.dataSource = dataSource;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	public boolean isUsable() {
+		return usable;
+	}
+
+	void update(long lagMs, boolean usable) {
+		this.lagMs = lagMs;
+		this.usable = usable;
+	}
+
+	void countRead() {
+		reads.increment();
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("usable", usable);
+		stats.put("lagMs", lagMs);
+		stats.put("reads", reads.sum());
+		return stats;
+	}
+}
@@ -0,0 +1,36 @@
+package com.valhallagame.characterserviceserver.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Whether the current thread may read from a replica. {@link ReplicaRoutingDataSource} only hands out replica
+ * connections while this is set, and like {@code ShardContext} it has to be set before the transaction starts.
+ */
+public final class ReplicaContext {
+
+	private static final ThreadLocal<Boolean> readOnly = new ThreadLocal<>();
+
+	private ReplicaContext() {
+	}
+
+	public static boolean isReadOnly() {
+		return Boolean.TRUE.equals(readOnly.get());
+	}
+
+	/**
+	 * Runs work that only reads and can live with data that is up to the configured lag behind.
+	 */
+	public static <T> T callReadOnly(Supplier<T> work) {
+		Boolean previous = readOnly.get();
+		readOnly.set(Boolean.TRUE);
+		try {
+			return work.get();
+		} finally {
+			if (previous == null) {
+				readOnly.remove();
+			} else {
+				readOnly.set(previous);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.valhallagame.characterserviceserver.replica;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Measures how far every replica is behind its primary and takes replicas out of rotation while they are more
+ * than {@code character.replicas.max-lag-ms} behind or cannot be reached. Reads from a replica are therefore at
+ * most the lag bound plus one check interval stale. The default query is for Postgres 9.x, newer versions need
+ * {@code character.replicas.lag-query} with the renamed wal functions. An idle replica that has replayed
+ * everything it received counts as not behind.
+ */
+@Component
+public class ReplicaLagMonitor {
+	private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+	private static final String LAG_QUERY = "SELECT CASE"
+			+ " WHEN pg_last_xlog_receive_location() = pg_last_xlog_replay_location() THEN 0"
+			+ " ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::BIGINT END";
+
+	private final List<ReplicaRoutingDataSource> dataSources = new CopyOnWriteArrayList<>();
+
+	private final long maxLagMs;
+
+	private final String lagQuery;
+
+	@Autowired
+	public ReplicaLagMonitor(@Value("${character.replicas.max-lag-ms:1000}") long maxLagMs,
+							 @Value("${character.replicas.lag-query:}") String lagQuery) {
+		this.maxLagMs = maxLagMs;
+		this.lagQuery = lagQuery.isEmpty() ? LAG_QUERY : lagQuery;
+	}
+
+	/**
+	 * Starts watching the replicas of a data source. Its replicas are not used before the first check.
+	 */
+	public void register(ReplicaRoutingDataSource dataSource) {
+		dataSources.add(dataSource);
+	}
+
+	@Scheduled(fixedDelayString = "${character.replicas.lag-check-interval-ms:1000}")
+	public void check() {
+		for (ReplicaRoutingDataSource dataSource : dataSources) {
+			for (Replica replica : dataSource.getReplicas()) {
+				check(replica);
+			}
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		for (ReplicaRoutingDataSource dataSource : dataSources) {
+			stats.put(dataSource.getName(), dataSource.getStats());
+		}
+		return stats;
+	}
+
+	private void check(Replica replica) {
+		boolean wasUsable = replica.isUsable();
+		try {
+			Long lagMs = new JdbcTemplate(replica.getDataSource()).queryForObject(lagQuery, Long.class);
+			if (lagMs == null) {
+				// Not in recovery, so not a replica of anything
+				replica.update(-1, false);
+			} else {
+				replica.update(lagMs, lagMs <= maxLagMs);
+			}
+		} catch (RuntimeException e) {
+			replica.update(-1, false);
+			if (wasUsable) {
+				logger.warn("Could not check lag of replica {}: {}", replica.getName(), e.toString());
+			}
+		}
+		if (wasUsable != replica.isUsable()) {
+			logger.info("Replica {} is {} ({} ms behind)", replica.getName(),
+					replica.isUsable() ? "back in rotation" : "out of rotation", replica.getStats().get("lagMs"));
+		}
+	}
+}
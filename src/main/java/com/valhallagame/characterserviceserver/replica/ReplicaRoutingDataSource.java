@@ -0,0 +1,75 @@
+package com.valhallagame.characterserviceserver.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A primary database and its replicas. Work marked with {@link ReplicaContext} gets a connection to one of the
+ * usable replicas in turn, everything else, and read-only work while no replica is usable, gets the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+	private final String name;
+
+	private final List<Replica> replicas;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final LongAdder primaryFallbacks = new LongAdder();
+
+	public ReplicaRoutingDataSource(String name, DataSource primary, List<Replica> replicas) {
+		this.name = name;
+		this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+		Map<Object, Object> targets = new HashMap<>();
+		for (int i = 0; i < replicas.size(); i++) {
+			targets.put(i, replicas.get(i).getDataSource());
+		}
+		setDefaultTargetDataSource(primary);
+		setTargetDataSources(targets);
+		setLenientFallback(false);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<Replica> getReplicas() {
+		return replicas;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (!ReplicaContext.isReadOnly()) {
+			return null;
+		}
+		int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+		for (int i = 0; i < replicas.size(); i++) {
+			int index = (start + i) % replicas.size();
+			Replica replica = replicas.get(index);
+			if (replica.isUsable()) {
+				replica.countRead();
+				return index;
+			}
+		}
+		primaryFallbacks.increment();
+		return null;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("primaryFallbacks", primaryFallbacks.sum());
+		for (Replica replica : replicas) {
+			stats.put(replica.getName(), replica.getStats());
+		}
+		return stats;
+	}
+}
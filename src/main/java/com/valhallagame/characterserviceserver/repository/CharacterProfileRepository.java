@@ -0,0 +1,84 @@
+package com.valhallagame.characterserviceserver.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.valhallagame.characterserviceserver.model.CharacterProfile;
+import com.valhallagame.characterserviceserver.model.ProfileEntryKind;
+
+/**
+ * Reads and writes the {@code character_profile_entry} projection. Every write is idempotent so redelivered
+ * events can be applied again safely.
+ */
+@Repository
+public class CharacterProfileRepository {
+
+	private static final String UPSERT = "INSERT INTO character_profile_entry (character_name, kind, entry_key, value)"
+			+ " VALUES (?, ?, ?, ?) ON CONFLICT (character_name, kind, entry_key) DO UPDATE SET value = EXCLUDED.value";
+
+	private static final String INSERT_MISSING = "INSERT INTO character_profile_entry"
+			+ " (character_name, kind, entry_key, value) VALUES (?, ?, ?, ?)"
+			+ " ON CONFLICT (character_name, kind, entry_key) DO NOTHING";
+
+	private static final String REMOVE = "DELETE FROM character_profile_entry"
+			+ " WHERE character_name = ? AND kind = ? AND entry_key = ?";
+
+	private static final String REMOVE_ALL = "DELETE FROM character_profile_entry WHERE character_name = ?";
+
+	private static final String FIND = "SELECT kind, entry_key, value FROM character_profile_entry"
+			+ " WHERE character_name = ? ORDER BY kind, entry_key";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	public CharacterProfileRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	public void putEntry(String characterName, ProfileEntryKind kind, String key, Long value) {
+		jdbcTemplate.update(UPSERT, characterName, kind.name(), key, value);
+	}
+
+	public void removeEntry(String characterName, ProfileEntryKind kind, String key) {
+		jdbcTemplate.update(REMOVE, characterName, kind.name(), key);
+	}
+
+	public void deleteProfile(String characterName) {
+		jdbcTemplate.update(REMOVE_ALL, characterName);
+	}
+
+	/**
+	 * Adds the given entries where the character has none yet, e.g. right after it was provisioned. Entries that
+	 * events already wrote are newer and are kept as they are.
+	 */
+	public void mergeProfile(String characterName, Map<ProfileEntryKind, Map<String, Long>> entries) {
+		List<Object[]> rows = new ArrayList<>();
+		entries.forEach((kind, values) -> values.forEach((key, value) ->
+				rows.add(new Object[] { characterName, kind.name(), key, value })));
+		jdbcTemplate.batchUpdate(INSERT_MISSING, rows);
+	}
+
+	public CharacterProfile findProfile(String characterName) {
+		CharacterProfile profile = new CharacterProfile(characterName);
+		jdbcTemplate.query(FIND, rs -> {
+			String key = rs.getString("entry_key");
+			switch (ProfileEntryKind.valueOf(rs.getString("kind"))) {
+			case TRAIT:
+				profile.getTraits().add(key);
+				break;
+			case CURRENCY:
+				profile.getCurrencies().put(key, rs.getLong("value"));
+				break;
+			case RECIPE:
+				profile.getRecipes().add(key);
+				break;
+			}
+		}, characterName);
+		return profile;
+	}
+}
@@ -0,0 +1,47 @@
+package com.valhallagame.characterserviceserver.repository;
+
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.CharacterDeletion;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.characterserviceserver.model.SlotAssignment;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface CharacterRepositoryCustom {
+	/**
+	 * Inserts a new character, failing with a constraint violation instead of overwriting when the name is
+	 * already taken.
+	 */
+	public Character insertCharacter(Character character);
+
+	/**
+	 * Replaces the default save so the item ids are kept in step with the item names on every write.
+	 */
+	public <S extends Character> S save(S character);
+
+	/**
+	 * Makes the given character the owner's selected one and queues the SELECT event in the same transaction.
+	 */
+	public void setSelectedCharacter(String owner, String characterName);
+
+	/**
+	 * Selects a character the owner owns and returns it, queueing the SELECT event in the same transaction.
+	 * Returns empty when the character does not exist or belongs to someone else, in which case the selection is
+	 * left untouched.
+	 */
+	public Optional<Character> selectOwnedCharacter(String owner, String characterName);
+
+	/**
+	 * Deletes a character owned by the given user and, if it was the selected one, selects another of the
+	 * owner's characters in the same transaction, together with the DELETE event.
+	 */
+	public CharacterDeletion deleteAndReselect(String owner, String characterName);
+
+	/**
+	 * Writes the given item slots in one statement if the character is still at the expected version and returns
+	 * the updated row. Returns empty when the character is missing or was changed concurrently.
+	 */
+	public Optional<Character> updateSlots(String characterName, long expectedVersion,
+			Map<ItemSlot, SlotAssignment> slots);
+}
@@ -0,0 +1,166 @@
+package com.valhallagame.characterserviceserver.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.CharacterDeletion;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.characterserviceserver.model.SlotAssignment;
+import com.valhallagame.common.rabbitmq.NotificationMessage;
+import com.valhallagame.common.rabbitmq.RabbitMQRouting;
+
+public class CharacterRepositoryImpl implements CharacterRepositoryCustom {
+
+	private static final String SET_SELECTED = "INSERT INTO selected_character (owner, character_name)"
+			+ " VALUES (:owner, :character_name) ON CONFLICT (owner) DO UPDATE SET character_name = :character_name";
+
+	static final String SELECT_OWNED = "WITH owned AS (SELECT owner, character_name FROM character"
+			+ " WHERE character_name = :character_name AND owner = :owner),"
+			+ " sc AS (INSERT INTO selected_character (owner, character_name)"
+			+ " SELECT lower(owner), character_name FROM owned"
+			+ " ON CONFLICT (owner) DO UPDATE SET character_name = EXCLUDED.character_name RETURNING character_name)"
+			+ " SELECT c.* FROM character c JOIN sc USING (character_name)";
+
+	// The cascade from character removes the selection when no replacement was found
+	static final String DELETE_AND_RESELECT = "WITH del AS ("
+			+ " DELETE FROM character WHERE character_name = :character_name AND owner = :owner"
+			+ " RETURNING owner, character_name),"
+			+ " was_selected AS (SELECT sc.owner FROM selected_character sc"
+			+ " JOIN del ON sc.owner = lower(del.owner) AND sc.character_name = del.character_name),"
+			+ " replacement AS (SELECT ws.owner, c.character_name FROM character c"
+			+ " JOIN del ON c.owner = del.owner CROSS JOIN was_selected ws"
+			+ " WHERE c.character_name <> del.character_name ORDER BY c.character_name LIMIT 1),"
+			+ " reselected AS (UPDATE selected_character sc SET character_name = r.character_name"
+			+ " FROM replacement r WHERE sc.owner = r.owner RETURNING sc.character_name)"
+			+ " SELECT (SELECT count(*) FROM del) AS deleted, (SELECT character_name FROM reselected) AS selected";
+
+	private static final String INSERT_OUTBOX = "INSERT INTO character_outbox (routing_key, payload)"
+			+ " VALUES (:routing_key, :payload)";
+
+	// Plain mapper, the relay reads the payload back into a NotificationMessage before handing it to the template
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private ItemDictionary itemDictionary;
+
+	@Override
+	@Transactional
+	public Character insertCharacter(Character character) {
+		itemDictionary.encode(character);
+		entityManager.persist(character);
+		entityManager.flush();
+		return character;
+	}
+
+	@Override
+	@Transactional
+	public <S extends Character> S save(S character) {
+		itemDictionary.encode(character);
+		return entityManager.merge(character);
+	}
+
+	@Override
+	@Transactional
+	public void setSelectedCharacter(String owner, String characterName) {
+		entityManager.createNativeQuery(SET_SELECTED)
+				.setParameter("owner", owner.toLowerCase())
+				.setParameter("character_name", characterName)
+				.executeUpdate();
+		addToOutbox(RabbitMQRouting.Character.SELECT, new NotificationMessage(owner, "Changed selected character"));
+	}
+
+	@Override
+	@Transactional
+	@SuppressWarnings("unchecked")
+	public Optional<Character> selectOwnedCharacter(String owner, String characterName) {
+		List<Character> selected = entityManager.createNativeQuery(SELECT_OWNED, Character.class)
+				.setParameter("owner", owner)
+				.setParameter("character_name", characterName)
+				.getResultList();
+		if (selected.isEmpty()) {
+			return Optional.empty();
+		}
+		addToOutbox(RabbitMQRouting.Character.SELECT, new NotificationMessage(owner, "Changed selected character"));
+		return Optional.of(selected.get(0));
+	}
+
+	@Override
+	@Transactional
+	public CharacterDeletion deleteAndReselect(String owner, String characterName) {
+		Object[] row = (Object[]) entityManager.createNativeQuery(DELETE_AND_RESELECT)
+				.setParameter("owner", owner)
+				.setParameter("character_name", characterName)
+				.getSingleResult();
+		boolean deleted = ((Number) row[0]).longValue() > 0;
+		String selectedCharacterName = (String) row[1];
+		if (deleted) {
+			NotificationMessage message = new NotificationMessage(owner, "A character was deleted");
+			message.addData("characterName", characterName);
+			if (selectedCharacterName != null) {
+				message.addData("selectedCharacterName", selectedCharacterName);
+			}
+			addToOutbox(RabbitMQRouting.Character.DELETE, message);
+		}
+		return new CharacterDeletion(deleted, selectedCharacterName);
+	}
+
+	@Override
+	@Transactional
+	@SuppressWarnings("unchecked")
+	public Optional<Character> updateSlots(String characterName, long expectedVersion,
+			Map<ItemSlot, SlotAssignment> slots) {
+		StringBuilder sql = new StringBuilder("UPDATE character SET ");
+		int index = 0;
+		for (ItemSlot itemSlot : slots.keySet()) {
+			// The casts keep null parameters from being bound as bytea
+			sql.append(itemSlot.getColumn()).append(" = :item").append(index).append(", ")
+					.append(itemSlot.getItemIdColumn()).append(" = CAST(:item_id").append(index).append(" AS SMALLINT), ")
+					.append(itemSlot.getMetaDataColumn()).append(" = CAST(:meta_data").append(index).append(" AS TEXT), ");
+			index++;
+		}
+		sql.append("version = version + 1 WHERE character_name = :character_name AND version = :version RETURNING *");
+
+		// An instance loaded earlier in this persistence context would shadow the returned row
+		entityManager.detach(entityManager.getReference(Character.class, characterName));
+
+		Query query = entityManager.createNativeQuery(sql.toString(), Character.class)
+				.setParameter("character_name", characterName)
+				.setParameter("version", expectedVersion);
+		index = 0;
+		for (SlotAssignment assignment : slots.values()) {
+			query.setParameter("item" + index, assignment.getItem());
+			query.setParameter("item_id" + index, itemDictionary.idOf(assignment.getItem()));
+			query.setParameter("meta_data" + index, ItemSlot.normalizeMetaData(assignment.getMetaData()));
+			index++;
+		}
+		List<Character> updated = query.getResultList();
+		return updated.stream().findFirst();
+	}
+
+	private void addToOutbox(RabbitMQRouting.Character routingKey, NotificationMessage message) {
+		String payload;
+		try {
+			payload = objectMapper.writeValueAsString(message);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize " + routingKey + " event", e);
+		}
+		entityManager.createNativeQuery(INSERT_OUTBOX)
+				.setParameter("routing_key", routingKey.name())
+				.setParameter("payload", payload)
+				.executeUpdate();
+	}
+}
@@ -0,0 +1,116 @@
+package com.valhallagame.characterserviceserver.repository;
+
+import com.valhallagame.characterserviceclient.model.Items;
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.characterserviceserver.sharding.ShardContext;
+import com.valhallagame.characterserviceserver.template.ClassTemplateRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the {@code item} table, mapping item names to the small ids stored next to them in the
+ * character rows until the name columns are dropped. The items of the client library and the gear of the class
+ * templates get their ids when the context starts, before the web server takes requests, so a write almost always
+ * only looks its ids up. Any other name gets a new id the first time it is written, in a transaction of its own on
+ * the directory, so an id that was handed out is never rolled back with the write that asked for it and reused by
+ * another node. The table lives in the directory database when sharded, so ids mean the same on every shard.
+ */
+@Component
+public class ItemDictionary {
+	private static final Logger logger = LoggerFactory.getLogger(ItemDictionary.class);
+
+	// The NOT EXISTS keeps known names from using up sequence values on the conflict path
+	private static final String INSERT = "INSERT INTO item (name) SELECT ? WHERE NOT EXISTS"
+			+ " (SELECT 1 FROM item WHERE name = ?) ON CONFLICT (name) DO NOTHING";
+
+	private final Map<String, Short> idsByName = new ConcurrentHashMap<>();
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate newTransaction;
+
+	private final ClassTemplateRegistry classTemplates;
+
+	@Autowired
+	public ItemDictionary(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+						  ClassTemplateRegistry classTemplates) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.newTransaction = new TransactionTemplate(transactionManager);
+		this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.classTemplates = classTemplates;
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() {
+		Set<String> items = new LinkedHashSet<>();
+		items.add(ItemSlot.EMPTY_ITEM);
+		for (Items item : Items.values()) {
+			items.add(item.name());
+		}
+		items.addAll(classTemplates.items());
+		ShardContext.onDirectory(() -> newTransaction.execute(status -> {
+			jdbcTemplate.batchUpdate(INSERT, items.stream()
+					.map(name -> new Object[] { name, name })
+					.collect(Collectors.toList()));
+			jdbcTemplate.query("SELECT id, name FROM item", rs -> {
+				remember(rs.getShort("id"), rs.getString("name"));
+			});
+			return null;
+		}));
+		logger.info("Loaded {} items into the item dictionary", idsByName.size());
+	}
+
+	/**
+	 * The id of an item, handing out a new one if nobody wrote the item before.
+	 */
+	public Short idOf(String name) {
+		if (name == null) {
+			return null;
+		}
+		Short id = idsByName.get(name);
+		if (id != null) {
+			return id;
+		}
+
+		id = ShardContext.onDirectory(() -> newTransaction.execute(status -> {
+			jdbcTemplate.update(INSERT, name, name);
+			return jdbcTemplate.queryForObject("SELECT id FROM item WHERE name = ?", Short.class, name);
+		}));
+		remember(id, name);
+		return id;
+	}
+
+	/**
+	 * Brings a character into the stored layout before it is written: item ids that match the item names and
+	 * empty meta data as absent.
+	 */
+	public void encode(Character character) {
+		for (ItemSlot slot : ItemSlot.slots()) {
+			slot.setItemId(character, idOf(slot.getItem(character)));
+			slot.equip(character, slot.getItem(character), slot.getMetaData(character));
+		}
+	}
+
+	public int size() {
+		return idsByName.size();
+	}
+
+	private void remember(Short id, String name) {
+		idsByName.put(name, id);
+	}
+}
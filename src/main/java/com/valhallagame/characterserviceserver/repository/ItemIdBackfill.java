@@ -0,0 +1,180 @@
+package com.valhallagame.characterserviceserver.repository;
+
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.characterserviceserver.sharding.ShardContext;
+import com.valhallagame.characterserviceserver.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fills the item id columns of characters written before they existed, or by nodes that did not know about them
+ * yet, and stores their empty meta data as NULL. Old nodes only write the item names; V9 clears an id whose name
+ * they changed, so their rows show up here as well. Walks the table in name order a batch per run, each batch in
+ * a short transaction, and starts over after a pass that still found rows to fix. A whole pass that finds nothing
+ * marks the backfill done; it checks again every {@code character.items.backfill.recheck-interval-ms} for as long
+ * as the name columns exist, in case an old node was still writing. The version is left alone since what the
+ * character looks like does not change. Safe to run on several nodes at once. Each shard is walked on its own and
+ * the backfill is done once all of them are.
+ */
+@Component
+public class ItemIdBackfill {
+	private static final Logger logger = LoggerFactory.getLogger(ItemIdBackfill.class);
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ItemDictionary itemDictionary;
+
+	private final boolean enabled;
+
+	private final int batchSize;
+
+	private final long recheckIntervalMs;
+
+	private final String selectBatch;
+
+	private final String updateRow;
+
+	private final LongAdder updated = new LongAdder();
+
+	private final Map<String, Progress> progressByShard = new LinkedHashMap<>();
+
+	private volatile boolean done;
+
+	private volatile long doneAt;
+
+	@Autowired
+	public ItemIdBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+						  ItemDictionary itemDictionary, ShardRouter shardRouter,
+						  @Value("${character.items.backfill.enabled:true}") boolean enabled,
+						  @Value("${character.items.backfill.batch-size:500}") int batchSize,
+						  @Value("${character.items.backfill.recheck-interval-ms:600000}") long recheckIntervalMs) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.itemDictionary = itemDictionary;
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+		this.recheckIntervalMs = recheckIntervalMs;
+		shardRouter.shards().forEach(shard -> progressByShard.put(shard, new Progress()));
+
+		StringJoiner columns = new StringJoiner(", ");
+		StringJoiner pending = new StringJoiner(" OR ");
+		StringJoiner assignments = new StringJoiner(", ");
+		for (ItemSlot slot : ItemSlot.slots()) {
+			columns.add(slot.getColumn());
+			pending.add(slot.getItemIdColumn() + " IS NULL").add(slot.getMetaDataColumn() + " = ''");
+			assignments.add(slot.getItemIdColumn() + " = ?")
+					.add(slot.getMetaDataColumn() + " = NULLIF(" + slot.getMetaDataColumn() + ", '')");
+		}
+		// Every row of the batch comes back so the cursor moves past the ones that are already done
+		this.selectBatch = "SELECT character_name, " + columns + ", (" + pending + ") AS pending FROM character"
+				+ " WHERE character_name > ? ORDER BY character_name LIMIT ? FOR UPDATE";
+		this.updateRow = "UPDATE character SET " + assignments + " WHERE character_name = ?";
+	}
+
+	@Scheduled(initialDelayString = "${character.items.backfill.interval-ms:200}",
+			fixedDelayString = "${character.items.backfill.interval-ms:200}")
+	public void run() {
+		if (!enabled) {
+			return;
+		}
+		if (done) {
+			if (System.currentTimeMillis() - doneAt < recheckIntervalMs) {
+				return;
+			}
+			progressByShard.values().forEach(progress -> progress.done = false);
+			done = false;
+		}
+		progressByShard.forEach((shard, progress) -> {
+			if (progress.done) {
+				return;
+			}
+			try {
+				Integer rows = ShardContext.call(shard,
+						() -> transactionTemplate.execute(status -> backfillBatch(progress)));
+				if (rows == null || rows < batchSize) {
+					finishPass(shard, progress);
+				}
+			} catch (RuntimeException e) {
+				logger.error("Failed to backfill item ids after {}", progress.cursor, e);
+			}
+		});
+		if (progressByShard.values().stream().allMatch(progress -> progress.done)) {
+			doneAt = System.currentTimeMillis();
+			done = true;
+			logger.info("Item id backfill complete, {} rows updated", updated.sum());
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("updated", updated.sum());
+		stats.put("done", done);
+		stats.put("doneAt", doneAt);
+		return stats;
+	}
+
+	private int backfillBatch(Progress progress) {
+		List<Object[]> updates = new ArrayList<>();
+		List<String> names = jdbcTemplate.query(selectBatch, (rs, rowNum) -> {
+			String characterName = rs.getString("character_name");
+			if (rs.getBoolean("pending")) {
+				Object[] update = new Object[ItemSlot.slots().length + 1];
+				int index = 0;
+				for (ItemSlot slot : ItemSlot.slots()) {
+					update[index++] = itemDictionary.idOf(rs.getString(slot.getColumn()));
+				}
+				update[index] = characterName;
+				updates.add(update);
+			}
+			return characterName;
+		}, progress.cursor, batchSize);
+
+		if (!updates.isEmpty()) {
+			jdbcTemplate.batchUpdate(updateRow, updates);
+			updated.add(updates.size());
+			progress.passUpdated = true;
+		}
+		if (!names.isEmpty()) {
+			progress.cursor = names.get(names.size() - 1);
+		}
+		return names.size();
+	}
+
+	private void finishPass(String shard, Progress progress) {
+		if (progress.passUpdated) {
+			logger.info("Item id backfill pass done{}, {} rows updated so far, starting another",
+					shard == null ? "" : " on shard " + shard, updated.sum());
+		} else {
+			progress.done = true;
+		}
+		progress.cursor = "";
+		progress.passUpdated = false;
+	}
+
+	/**
+	 * Where the walk over one shard's table is. Only touched by the scheduler thread.
+	 */
+	private static class Progress {
+		private String cursor = "";
+
+		private boolean passUpdated;
+
+		private boolean done;
+	}
+}
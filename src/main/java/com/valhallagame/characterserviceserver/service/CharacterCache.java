@@ -0,0 +1,277 @@
+package com.valhallagame.characterserviceserver.service;
+
+import com.valhallagame.characterserviceserver.model.Character;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of characters by name and of character lists by owner. Callers always get their own
+ * copies, so mutating a returned character never leaks into the cache. Every write bumps a generation counter
+ * and a load that started before a write is not cached, which keeps a slow read from re-inserting stale rows.
+ * Next to the entities it keeps their encoded response bodies per format, which are dropped together with them.
+ */
+@Component
+public class CharacterCache {
+	/**
+	 * Routing key on the character exchange used to tell other nodes that a character was written.
+	 */
+	public static final String INVALIDATE_ROUTING_KEY = "INVALIDATE_CACHE";
+
+	private final String nodeId = UUID.randomUUID().toString();
+
+	private final ExpiringLruMap<String, Character> byName;
+
+	private final ExpiringLruMap<String, List<Character>> byOwner;
+
+	private final ExpiringLruMap<String, Map<String, EncodedCharacter>> encodedByName;
+
+	private long generation;
+
+	private long hits;
+
+	private long misses;
+
+	private long encodedHits;
+
+	private long encodedMisses;
+
+	public CharacterCache(@Value("${character.cache.max-size:10000}") int maxSize,
+						  @Value("${character.cache.ttl-ms:60000}") long ttlMs) {
+		long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+		this.byName = new ExpiringLruMap<>(maxSize, ttlNanos);
+		this.byOwner = new ExpiringLruMap<>(maxSize, ttlNanos);
+		this.encodedByName = new ExpiringLruMap<>(maxSize, ttlNanos);
+	}
+
+	public Optional<Character> getCharacter(String characterName, Supplier<Optional<Character>> loader) {
+		long loadGeneration;
+		synchronized (this) {
+			Character cached = byName.get(characterName);
+			if (cached != null) {
+				hits++;
+				return Optional.of(new Character(cached));
+			}
+			misses++;
+			loadGeneration = generation;
+		}
+
+		Optional<Character> loaded = loader.get();
+		if (loaded.isPresent()) {
+			synchronized (this) {
+				if (loadGeneration == generation) {
+					byName.put(characterName, new Character(loaded.get()));
+				}
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Looks up several characters at once, loading all misses with a single call to the loader. Names that do
+	 * not exist are absent from the returned map.
+	 */
+	public Map<String, Character> getCharacters(Collection<String> characterNames,
+												Function<Collection<String>, List<Character>> loader) {
+		Map<String, Character> found = new LinkedHashMap<>();
+		Set<String> missing = new LinkedHashSet<>();
+		long loadGeneration;
+		synchronized (this) {
+			for (String characterName : characterNames) {
+				Character cached = byName.get(characterName);
+				if (cached != null) {
+					hits++;
+					found.put(characterName, new Character(cached));
+				} else {
+					misses++;
+					missing.add(characterName);
+				}
+			}
+			loadGeneration = generation;
+		}
+
+		if (missing.isEmpty()) {
+			return found;
+		}
+
+		List<Character> loaded = loader.apply(missing);
+		synchronized (this) {
+			for (Character character : loaded) {
+				found.put(character.getCharacterName(), character);
+				if (loadGeneration == generation) {
+					byName.put(character.getCharacterName(), new Character(character));
+				}
+			}
+		}
+		return found;
+	}
+
+	public List<Character> getCharacters(String owner, Supplier<List<Character>> loader) {
+		long loadGeneration;
+		synchronized (this) {
+			List<Character> cached = byOwner.get(owner);
+			if (cached != null) {
+				hits++;
+				return copy(cached);
+			}
+			misses++;
+			loadGeneration = generation;
+		}
+
+		List<Character> loaded = loader.get();
+		synchronized (this) {
+			if (loadGeneration == generation) {
+				byOwner.put(owner, copy(loaded));
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * The encoded response for a character in the given format, encoding it at most once per version. Empty if
+	 * the character does not exist.
+	 */
+	public Optional<EncodedCharacter> getEncoded(String characterName, String format,
+												 Supplier<Optional<Character>> loader,
+												 Function<Character, byte[]> encoder) {
+		long loadGeneration;
+		synchronized (this) {
+			EncodedCharacter cached = encoded(characterName, format);
+			if (cached != null) {
+				encodedHits++;
+				return Optional.of(cached);
+			}
+			encodedMisses++;
+			loadGeneration = generation;
+		}
+
+		Optional<Character> character = getCharacter(characterName, loader);
+		if (!character.isPresent()) {
+			return Optional.empty();
+		}
+		EncodedCharacter encoded = new EncodedCharacter(character.get(), encoder.apply(character.get()));
+		synchronized (this) {
+			if (loadGeneration == generation) {
+				putEncoded(characterName, format, encoded);
+			}
+		}
+		return Optional.of(encoded);
+	}
+
+	/**
+	 * The encoded response for a character that was just read elsewhere, reusing the cached body if it is for
+	 * the same version.
+	 */
+	public EncodedCharacter encode(Character character, String format, Function<Character, byte[]> encoder) {
+		String characterName = character.getCharacterName();
+		synchronized (this) {
+			EncodedCharacter cached = encoded(characterName, format);
+			if (cached != null && cached.getVersion() == character.getVersion()) {
+				encodedHits++;
+				return cached;
+			}
+			encodedMisses++;
+		}
+
+		EncodedCharacter encoded = new EncodedCharacter(character, encoder.apply(character));
+		synchronized (this) {
+			EncodedCharacter cached = encoded(characterName, format);
+			if (cached == null || cached.getVersion() < encoded.getVersion()) {
+				putEncoded(characterName, format, encoded);
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * Stores a freshly written character and drops the character lists it may appear in.
+	 */
+	public synchronized void put(Character character) {
+		generation++;
+		encodedByName.remove(character.getCharacterName());
+		Character previous = byName.peek(character.getCharacterName());
+		if (previous != null) {
+			byOwner.remove(ownerKey(previous.getOwnerUsername()));
+		}
+		byName.put(character.getCharacterName(), new Character(character));
+		byOwner.remove(ownerKey(character.getOwnerUsername()));
+	}
+
+	public synchronized void evict(String characterName, String owner) {
+		generation++;
+		if (characterName != null) {
+			Character previous = byName.peek(characterName);
+			if (previous != null) {
+				byOwner.remove(ownerKey(previous.getOwnerUsername()));
+			}
+			byName.remove(characterName);
+			encodedByName.remove(characterName);
+		}
+		if (owner != null) {
+			byOwner.remove(ownerKey(owner));
+		}
+	}
+
+	public synchronized void clear() {
+		generation++;
+		byName.clear();
+		byOwner.clear();
+		encodedByName.clear();
+	}
+
+	/**
+	 * Identifies this node in invalidation messages so it can skip the ones it sent itself.
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public synchronized Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("size", byName.size());
+		stats.put("ownerListSize", byOwner.size());
+		stats.put("hits", hits);
+		stats.put("misses", misses);
+		stats.put("encodedSize", encodedByName.size());
+		stats.put("encodedHits", encodedHits);
+		stats.put("encodedMisses", encodedMisses);
+		stats.put("evictions", byName.getEvictions() + byOwner.getEvictions() + encodedByName.getEvictions());
+		return stats;
+	}
+
+	private EncodedCharacter encoded(String characterName, String format) {
+		Map<String, EncodedCharacter> formats = encodedByName.get(characterName);
+		return formats == null ? null : formats.get(format);
+	}
+
+	private void putEncoded(String characterName, String format, EncodedCharacter encoded) {
+		Map<String, EncodedCharacter> formats = encodedByName.get(characterName);
+		if (formats == null) {
+			formats = new HashMap<>();
+			encodedByName.put(characterName, formats);
+		}
+		formats.put(format, encoded);
+	}
+
+	private static String ownerKey(String owner) {
+		return owner.toLowerCase();
+	}
+
+	private static List<Character> copy(List<Character> characters) {
+		return characters.stream().map(Character::new).collect(Collectors.toCollection(ArrayList::new));
+	}
+}
@@ -0,0 +1,94 @@
+package com.valhallagame.characterserviceserver.service;
+
+import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of every lower-cased character name, used to answer "this name is free" without a database
+ * round trip. A name that is in the set is only a probable conflict and is confirmed against the database, so
+ * a stale entry never blocks a name. A missing entry is trusted by character-available only: a name another node
+ * created moments ago reaches this index with its invalidation message, so creation always checks the database.
+ */
+@Component
+public class CharacterNameIndex {
+	private static final Logger logger = LoggerFactory.getLogger(CharacterNameIndex.class);
+
+	private final CharacterRepository characterRepository;
+
+	private volatile Set<String> names = ConcurrentHashMap.newKeySet();
+
+	private volatile Set<String> building;
+
+	private volatile boolean ready;
+
+	@Autowired
+	public CharacterNameIndex(CharacterRepository characterRepository) {
+		this.characterRepository = characterRepository;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	/**
+	 * Reloads the index from the character table to heal any drift from missed notifications.
+	 */
+	@Scheduled(initialDelayString = "${character.name-index.rebuild-interval-ms:600000}",
+			fixedDelayString = "${character.name-index.rebuild-interval-ms:600000}")
+	public void rebuild() {
+		Set<String> fresh = ConcurrentHashMap.newKeySet();
+		// Names added while the table is being read go into both sets so the swap does not lose them
+		building = fresh;
+		try {
+			List<String> characterNames = characterRepository.findAllCharacterNames();
+			characterNames.forEach(name -> fresh.add(name.toLowerCase()));
+			names = fresh;
+			ready = true;
+			logger.info("Rebuilt character name index with {} names", fresh.size());
+		} catch (RuntimeException e) {
+			logger.error("Failed to rebuild character name index", e);
+		} finally {
+			building = null;
+		}
+	}
+
+	/**
+	 * Returns false only when the name is definitely not in use.
+	 */
+	public boolean mightExist(String characterName) {
+		return !ready || names.contains(characterName.toLowerCase());
+	}
+
+	public void add(String characterName) {
+		String name = characterName.toLowerCase();
+		names.add(name);
+		Set<String> pending = building;
+		if (pending != null) {
+			pending.add(name);
+		}
+	}
+
+	public void remove(String characterName) {
+		String name = characterName.toLowerCase();
+		names.remove(name);
+		Set<String> pending = building;
+		if (pending != null) {
+			pending.remove(name);
+		}
+	}
+
+	public int size() {
+		return names.size();
+	}
+}
@@ -1,32 +1,52 @@
 package com.valhallagame.characterserviceserver.service;
 
 import com.valhallagame.characterserviceclient.message.EquippedItemParameter;
-import com.valhallagame.characterserviceclient.model.Items;
+import com.valhallagame.characterserviceserver.metrics.LatencyHistogram;
+import com.valhallagame.characterserviceserver.metrics.LatencyRegistry;
+import com.valhallagame.characterserviceserver.model.AllowedClasses;
 import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.CharacterDeletion;
+import com.valhallagame.characterserviceserver.model.CharacterProfile;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.characterserviceserver.model.ProfileEntryKind;
+import com.valhallagame.characterserviceserver.model.SlotAssignment;
+import com.valhallagame.characterserviceserver.rabbitmq.CharacterEventPublisher;
+import com.valhallagame.characterserviceserver.repository.CharacterProfileRepository;
 import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import com.valhallagame.characterserviceserver.template.ClassTemplate;
+import com.valhallagame.characterserviceserver.template.ClassTemplateRegistry;
 import com.valhallagame.common.rabbitmq.NotificationMessage;
-import com.valhallagame.common.rabbitmq.RabbitMQRouting;
-import com.valhallagame.common.rabbitmq.RabbitSender;
 import com.valhallagame.currencyserviceclient.CurrencyServiceClient;
-import com.valhallagame.currencyserviceclient.model.CurrencyType;
 import com.valhallagame.recipeserviceclient.RecipeServiceClient;
 import com.valhallagame.traitserviceclient.TraitServiceClient;
 import com.valhallagame.traitserviceclient.message.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CharacterService {
     private final CharacterRepository characterRepository;
 
-    private final RabbitSender rabbitSender;
+    private final CharacterEventPublisher eventPublisher;
 
     private final TraitServiceClient traitServiceClient;
 
@@ -34,53 +54,198 @@ public class CharacterService {
 
     private final RecipeServiceClient recipeServiceClient;
 
+    private final ExecutorService provisioningExecutor;
+
+    private final ClassTemplateRegistry classTemplates;
+
+    private final CharacterCache characterCache;
+
+    private final CharacterNameIndex characterNameIndex;
+
+    private final CharacterProfileRepository characterProfileRepository;
+
+	private final RecentWrites recentWrites;
+
+    private final LatencyHistogram unlockTraitLatency;
+
+    private final LatencyHistogram purchaseTraitLatency;
+
+    private final LatencyHistogram skillTraitLatency;
+
+    private final LatencyHistogram addCurrencyLatency;
+
+    private final LatencyHistogram addRecipeLatency;
+
     private static Logger logger = LoggerFactory.getLogger(CharacterService.class);
 
+	private static final int SLOT_UPDATE_ATTEMPTS = 3;
+
     @Autowired
-    public CharacterService(CharacterRepository characterRepository, RabbitSender rabbitSender,
+    public CharacterService(CharacterRepository characterRepository, CharacterEventPublisher eventPublisher,
 							TraitServiceClient traitServiceClient, CurrencyServiceClient currencyServiceClient,
-							RecipeServiceClient recipeServiceClient) {
+							RecipeServiceClient recipeServiceClient,
+							@Qualifier("provisioningExecutor") ExecutorService provisioningExecutor,
+							ClassTemplateRegistry classTemplates, CharacterCache characterCache,
+							CharacterNameIndex characterNameIndex,
+							CharacterProfileRepository characterProfileRepository, RecentWrites recentWrites,
+							LatencyRegistry latencyRegistry) {
         this.characterRepository = characterRepository;
-        this.rabbitSender = rabbitSender;
+        this.eventPublisher = eventPublisher;
         this.traitServiceClient = traitServiceClient;
         this.currencyServiceClient = currencyServiceClient;
         this.recipeServiceClient = recipeServiceClient;
+        this.provisioningExecutor = provisioningExecutor;
+        this.classTemplates = classTemplates;
+        this.characterCache = characterCache;
+        this.characterNameIndex = characterNameIndex;
+        this.characterProfileRepository = characterProfileRepository;
+		this.recentWrites = recentWrites;
+        this.unlockTraitLatency = latencyRegistry.histogram("clients", "TraitServiceClient.unlockTrait");
+        this.purchaseTraitLatency = latencyRegistry.histogram("clients", "TraitServiceClient.purchaseTrait");
+        this.skillTraitLatency = latencyRegistry.histogram("clients", "TraitServiceClient.skillTrait");
+        this.addCurrencyLatency = latencyRegistry.histogram("clients", "CurrencyServiceClient.addCurrency");
+        this.addRecipeLatency = latencyRegistry.histogram("clients", "RecipeServiceClient.addRecipe");
     }
 
     public Character saveCharacter(Character character) {
-    	logger.info("Saving character: {}", character);
-		return characterRepository.save(character);
+    	logger.debug("Saving character {}", character.getCharacterName());
+		return written(characterRepository.save(character));
+	}
+
+	private Character written(Character character) {
+		recentWrites.characterWritten(character.getCharacterName(), character.getOwnerUsername());
+		characterCache.put(character);
+		characterNameIndex.add(character.getCharacterName());
+		notifyCharacterChanged(character.getCharacterName(), character.getOwnerUsername());
+		return character;
+	}
+
+	/**
+	 * Checks whether a character name is in use as far as this node knows, only going to the database when the
+	 * name index reports a probable conflict. A name another node created moments ago may not be in the index yet,
+	 * so this only answers character-available; creation uses {@link #isCharacterNameTaken(String)}.
+	 */
+	public boolean isCharacterNameKnown(String characterName) {
+		if (!characterNameIndex.mightExist(characterName)) {
+			return false;
+		}
+		return getCharacter(characterName).isPresent();
+	}
+
+	/**
+	 * Checks whether a character name is in use on the primary, whatever the name index says.
+	 */
+	public boolean isCharacterNameTaken(String characterName) {
+		return characterRepository.findByCharacterName(characterName.toLowerCase()).isPresent();
 	}
 
 	public Optional<Character> getCharacter(String characterName) {
-    	logger.info("Getting character with name: {}", characterName);
-		return characterRepository.findByCharacterName(characterName.toLowerCase());
+    	logger.debug("Getting character with name: {}", characterName);
+		String name = characterName.toLowerCase();
+		return characterCache.getCharacter(name,
+				() -> recentWrites.readCharacter(name, () -> characterRepository.findByCharacterName(name)));
+	}
+
+	/**
+	 * A character's response body in the given format, served from the cache until the character is written.
+	 */
+	public Optional<EncodedCharacter> getEncodedCharacter(String characterName, String format,
+														  Function<Character, byte[]> encoder) {
+		String name = characterName.toLowerCase();
+		return characterCache.getEncoded(name, format,
+				() -> recentWrites.readCharacter(name, () -> characterRepository.findByCharacterName(name)), encoder);
+	}
+
+	/**
+	 * Resolves a batch of character names with at most one query. The result is keyed by lower-cased name and
+	 * only contains the characters that exist.
+	 */
+	public Map<String, Character> getCharactersByName(Collection<String> characterNames) {
+		logger.debug("Getting {} characters by name", characterNames.size());
+		Set<String> names = characterNames.stream().map(String::toLowerCase)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		return characterCache.getCharacters(names, characterRepository::findByCharacterNameIn);
 	}
 
 	public List<Character> getCharacters(String username) {
-    	logger.info("Getting characters for username: {}", username);
-		return characterRepository.findByOwnerUsername(username.toLowerCase());
+    	logger.debug("Getting characters for username: {}", username);
+		String owner = username.toLowerCase();
+		return characterCache.getCharacters(owner,
+				() -> recentWrites.readOwner(owner, () -> characterRepository.findByOwnerUsername(owner)));
 	}
 
 	public void setSelectedCharacter(String owner, String characterName) {
-    	logger.info("Setting selected character for user {} to {}", owner, characterName);
-		characterRepository.setSelectedCharacter(owner.toLowerCase(), characterName.toLowerCase());
-		rabbitSender.sendMessage(RabbitMQRouting.Exchange.CHARACTER,
-				RabbitMQRouting.Character.SELECT.name(), new NotificationMessage(owner, "Changed selected character"));
+    	logger.debug("Setting selected character for user {} to {}", owner, characterName);
+		recentWrites.ownerWritten(owner);
+		characterRepository.setSelectedCharacter(owner, characterName.toLowerCase());
+	}
+
+	/**
+	 * Selects a character if it is owned by the given user and returns it. Ownership check, selection and read
+	 * are a single statement; empty means the character is missing or owned by someone else.
+	 */
+	public Optional<Character> selectCharacter(String owner, String characterName) {
+		logger.debug("Selecting character {} for user {}", characterName, owner);
+		recentWrites.ownerWritten(owner);
+		return characterRepository.selectOwnedCharacter(owner, characterName.toLowerCase());
 	}
 
+	/**
+	 * Always read from the primary: a selection made on another node is not announced to this one, so
+	 * {@link RecentWrites} cannot tell when a replica would still return the previous one.
+	 */
 	public Optional<Character> getSelectedCharacter(String owner) {
-    	logger.info("Getting selected character for user {}", owner);
+    	logger.debug("Getting selected character for user {}", owner);
 		return characterRepository.getSelectedCharacter(owner.toLowerCase());
 	}
 
-	public void deleteCharacter(Character local) {
-    	logger.info("Deleting character: {}", local);
-		characterRepository.delete(local);
+	/**
+	 * The selected character's response body. The selection itself is always read from the database since
+	 * other nodes change it without telling this one; only the encoding is reused.
+	 */
+	public Optional<EncodedCharacter> getEncodedSelectedCharacter(String owner, String format,
+																  Function<Character, byte[]> encoder) {
+		return getSelectedCharacter(owner).map(character -> characterCache.encode(character, format, encoder));
 	}
 
+	/**
+	 * Deletes a character owned by the given user, moving their selection to another of their characters if
+	 * needed. One DELETE notification, carrying the new selection if there is one, is queued in the outbox with
+	 * the delete.
+	 */
+	public CharacterDeletion deleteCharacter(String owner, String characterName) {
+		logger.debug("Deleting character {} for user {}", characterName, owner);
+		String name = characterName.toLowerCase();
+		CharacterDeletion deletion = characterRepository.deleteAndReselect(owner, name);
+		if (!deletion.isDeleted()) {
+			return deletion;
+		}
+
+		recentWrites.characterWritten(name, owner);
+		characterCache.evict(name, owner);
+		characterNameIndex.remove(name);
+		characterProfileRepository.deleteProfile(name);
+		return deletion;
+	}
+
+	/**
+	 * Tells the other character service nodes to drop their cached copy of a character.
+	 */
+	private void notifyCharacterChanged(String characterName, String owner) {
+		NotificationMessage message = new NotificationMessage(owner, "Character changed");
+		message.addData("characterName", characterName);
+		message.addData("origin", characterCache.getNodeId());
+		eventPublisher.publish(CharacterCache.INVALIDATE_ROUTING_KEY, message);
+	}
+
+	/**
+	 * Claims the name by inserting the character before anything is provisioned, so a name that is taken, on this
+	 * node or any other, fails on the insert without touching the trait, currency and recipe services. When a
+	 * required provisioning call fails the character is deleted again; its DELETE event lets those services drop
+	 * what was already provisioned for it.
+	 */
 	public Character createCharacter(String username, String displayCharacterName, String startingClass) throws IOException {
-    	logger.info("Creating character for user {} with name {} and starting class {}", username, displayCharacterName, startingClass);
+    	logger.debug("Creating character for user {} with name {} and starting class {}", username, displayCharacterName, startingClass);
 		Character character = new Character();
 		character.setOwnerUsername(username);
 		character.setDisplayCharacterName(displayCharacterName);
@@ -88,276 +253,218 @@ public class CharacterService {
 		String characterName = displayCharacterName.toLowerCase();
 		character.setCharacterName(characterName);
 
-		if(!AllowedClasses.has(startingClass)) {
-			return null;
+		AllowedClasses characterClass = AllowedClasses.fromString(startingClass);
+		if (characterClass == null) {
+			throw new IllegalArgumentException("Unknown starting class " + startingClass);
+		}
+
+		ClassTemplate template = classTemplates.get(characterClass);
+		template.getGear().forEach((slot, item) -> slot.equip(character, item, null));
+
+		ProvisioningPipeline pipeline = new ProvisioningPipeline(provisioningExecutor);
+		ProvisioningPipeline.Stage unlocks = pipeline.stage("unlock");
+		for (TraitType traitType : template.getUnlocks()) {
+			unlocks.call("unlock " + traitType, () -> unlockTrait(characterName, traitType));
+		}
+		Set<TraitType> optionalUnlocked = ConcurrentHashMap.newKeySet();
+		for (TraitType traitType : template.getOptionalUnlocks()) {
+			unlocks.optionalCall("unlock " + traitType, () -> {
+				unlockTrait(characterName, traitType);
+				optionalUnlocked.add(traitType);
+			});
+		}
+		template.getCurrencies().forEach((currencyType, amount) -> unlocks.call("add " + currencyType,
+				() -> timed(addCurrencyLatency, () -> currencyServiceClient.addCurrency(characterName, currencyType, amount))));
+		for (String recipe : template.getRecipes()) {
+			unlocks.call("add recipe " + recipe,
+					() -> timed(addRecipeLatency, () -> recipeServiceClient.addRecipe(characterName, recipe)));
 		}
 
-		unlockTrait(characterName, TraitType.DODGE);
-		purchaseTrait(characterName, TraitType.DODGE);
-
-		unlockTrait(characterName, TraitType.SHIELD_BREAKER);
-		unlockTrait(characterName, TraitType.HEMORRHAGE);
-		unlockTrait(characterName, TraitType.GUNGNIRS_WRATH);
-		unlockTrait(characterName, TraitType.ONEHANDED_SPECIALIZATION);
-		unlockTrait(characterName, TraitType.FROST_BLAST);
-		unlockTrait(characterName, TraitType.SEIDHRING);
-		unlockTrait(characterName, TraitType.PETRIFY);
-		unlockTrait(characterName, TraitType.FRIGGS_INTERVENTION);
-		unlockTrait(characterName, TraitType.SHIELD_BASH);
-		unlockTrait(characterName, TraitType.RECOVER);
-		unlockTrait(characterName, TraitType.TAUNT);
-		unlockTrait(characterName, TraitType.KICK);
-
-		switch (AllowedClasses.get(startingClass)) {
-			case WARRIOR:
-				equipAsWarrior(character, characterName);
-				break;
-			case SHAMAN:
-				equipAsShaman(character, characterName);
-				break;
-			case RANGER:
-				equipAsRanger(character, characterName);
-				break;
-			case DEBUG:
-				equipAsDebug(character, characterName);
-				break;
+		ProvisioningPipeline.Stage purchases = pipeline.stage("purchase");
+		for (TraitType traitType : template.getPurchases()) {
+			purchases.call("purchase " + traitType, () -> purchaseTrait(characterName, traitType));
 		}
 
-		SkillTraitParameter skillTraitParameter = new SkillTraitParameter(characterName, TraitType.DODGE, AttributeType.AGILITY, 0);
-		traitServiceClient.skillTrait(skillTraitParameter);
+		ProvisioningPipeline.Stage skills = pipeline.stage("skill");
+		for (ClassTemplate.SkilledTrait skill : template.getSkills()) {
+			skills.call("skill " + skill.getTrait(), () -> timed(skillTraitLatency, () -> traitServiceClient.skillTrait(
+					new SkillTraitParameter(characterName, skill.getTrait(), skill.getAttribute(), skill.getPosition()))));
+		}
 
-		currencyServiceClient.addCurrency(characterName, CurrencyType.GOLD, 50);
+		Character claimed = characterRepository.insertCharacter(character);
+		ProvisioningResult result;
+		try {
+			result = runProvisioning(pipeline);
+		} catch (IOException | RuntimeException e) {
+			release(claimed);
+			throw e;
+		}
+		logger.debug("Provisioned character {}: {}", characterName, result.describeLatencies());
+		result.getOptionalFailures().forEach(step ->
+				logger.error("Failed to populate character " + characterName + " with " + step.getName(), step.getError()));
+		if (!result.isSuccessful()) {
+			release(claimed);
+			Exception cause = result.getRequiredFailures().get(0).getError();
+			throw new IOException("Failed to provision character " + characterName + ": " + result.describeFailures(), cause);
+		}
 
-		character = saveCharacter(character);
-		setSelectedCharacter(character.getOwnerUsername(), character.getCharacterName());
-		addDefaultRecipes(characterName);
-		return character;
+		Character saved = written(claimed);
+		setSelectedCharacter(saved.getOwnerUsername(), saved.getCharacterName());
+		seedProfile(characterName, template, optionalUnlocked);
+		return saved;
 	}
 
-	public Character equipItem(String characterName, EquippedItemParameter itemToEquip) {
-		logger.info("Equip item for character {} with {}", characterName, itemToEquip);
-		Optional<Character> optCharacter = getCharacter(characterName);
+	/**
+	 * Gives the name of a character whose provisioning failed back. A failed release is only logged, the caller
+	 * reports the provisioning failure either way.
+	 */
+	private void release(Character character) {
+		try {
+			characterRepository.deleteAndReselect(character.getOwnerUsername(), character.getCharacterName());
+			recentWrites.characterWritten(character.getCharacterName(), character.getOwnerUsername());
+			characterCache.evict(character.getCharacterName(), character.getOwnerUsername());
+		} catch (RuntimeException e) {
+			logger.error("Failed to release character " + character.getCharacterName()
+					+ " after its provisioning failed", e);
+		}
+	}
 
-		if(!optCharacter.isPresent()) {
-			return null;
+	/**
+	 * Writes what provisioning just created into the profile projection so the profile is complete before the
+	 * matching events arrive. Merged rather than replaced, so events that were applied while the character was
+	 * being provisioned are kept. The events themselves are idempotent against this.
+	 */
+	private void seedProfile(String characterName, ClassTemplate template, Set<TraitType> optionalUnlocked) {
+		Map<ProfileEntryKind, Map<String, Long>> entries = new EnumMap<>(ProfileEntryKind.class);
+		Map<String, Long> traits = new LinkedHashMap<>();
+		template.getUnlocks().forEach(trait -> traits.put(trait.name(), null));
+		optionalUnlocked.forEach(trait -> traits.put(trait.name(), null));
+		entries.put(ProfileEntryKind.TRAIT, traits);
+
+		Map<String, Long> currencies = new LinkedHashMap<>();
+		template.getCurrencies().forEach((currency, amount) -> currencies.put(currency.name(), amount.longValue()));
+		entries.put(ProfileEntryKind.CURRENCY, currencies);
+
+		Map<String, Long> recipes = new LinkedHashMap<>();
+		template.getRecipes().forEach(recipe -> recipes.put(recipe, null));
+		entries.put(ProfileEntryKind.RECIPE, recipes);
+		try {
+			characterProfileRepository.mergeProfile(characterName, entries);
+		} catch (RuntimeException e) {
+			// The events fill it in later, a missing seed must not fail a character that already exists
+			logger.error("Failed to seed profile of character " + characterName, e);
 		}
+	}
 
-		Character character = optCharacter.get();
+	/**
+	 * Returns the traits, currencies and recipes of a character from the local projection, or empty if there is
+	 * no such character.
+	 */
+	public Optional<CharacterProfile> getCharacterProfile(String characterName) {
+		String name = characterName.toLowerCase();
+		if (!getCharacter(name).isPresent()) {
+			return Optional.empty();
+		}
+		return Optional.of(characterProfileRepository.findProfile(name));
+	}
 
-		equipCharacter(character, itemToEquip);
+	private ProvisioningResult runProvisioning(ProvisioningPipeline pipeline) throws IOException {
+		try {
+			return pipeline.run();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while provisioning character", e);
+		}
+	}
 
-		return saveCharacter(character);
+	public Character equipItem(String characterName, EquippedItemParameter itemToEquip) {
+		logger.debug("Equip item for character {} with {}", characterName, itemToEquip);
+		return equipLoadout(characterName, Collections.singletonList(itemToEquip), Collections.emptyList());
 	}
 
 	public Character unequipItem(String characterName, String itemSlot) {
-		logger.info("Unequip item for character {} with {}", characterName, itemSlot);
-		Optional<Character> optCharacter = getCharacter(characterName);
+		logger.debug("Unequip item for character {} with {}", characterName, itemSlot);
+		return equipLoadout(characterName, Collections.emptyList(), Collections.singletonList(itemSlot));
+	}
 
-		if(!optCharacter.isPresent()) {
-			return null;
+	/**
+	 * Applies a set of unequips and equips with a single versioned UPDATE. Equips win over unequips of the
+	 * same slot. When another write got in between, the current version is read again and the update retried.
+	 */
+	public Character equipLoadout(String characterName, List<EquippedItemParameter> itemsToEquip,
+								  List<String> itemSlotsToUnequip) {
+		Map<ItemSlot, SlotAssignment> slots = new EnumMap<>(ItemSlot.class);
+		for (String itemSlot : itemSlotsToUnequip) {
+			assignSlot(slots, itemSlot, new SlotAssignment(ItemSlot.EMPTY_ITEM, null));
+		}
+		for (EquippedItemParameter itemToEquip : itemsToEquip) {
+			assignSlot(slots, itemToEquip.getItemSlot(),
+					new SlotAssignment(itemToEquip.getItem(), itemToEquip.getMetaData()));
 		}
 
-		Character character = optCharacter.get();
-
-		unequipCharacter(character, itemSlot);
-
-		return saveCharacter(character);
-	}
-
-	private void equipAsDebug(Character character, String characterName) {
-		character.setHeadItem("NONE");
-		character.setBeardItem("NONE");
-		character.setChestItem("HEAVY_HIDE_CHESTPIECE");
-		character.setHandsItem("NONE");
-		character.setLegsItem("REINFORCED_LEATHER_PANTS");
-		character.setFeetItem("FORTIFIED_BOOTS");
-
-		character.setMainhandArmament(Items.BLUNT_HAND_AXE.name());
-		character.setOffHandArmament(Items.CUMBERSOME_SMALL_SHIELD.name());
-
-		Arrays.stream(TraitType.values()).forEach(val -> {
-			try {
-				unlockTrait(characterName, val);
-			} catch (IOException e) {
-				logger.error("failed to populate debug character with " + val, e);
+		String name = characterName.toLowerCase();
+		for (int attempt = 0; attempt < SLOT_UPDATE_ATTEMPTS; attempt++) {
+			Optional<Character> current = getCharacter(name);
+			if (!current.isPresent() || slots.isEmpty()) {
+				return current.orElse(null);
 			}
-		});
-	}
-
-	private void equipAsWarrior(Character character, String characterName) throws IOException {
-		character.setHeadItem("NONE");
-		character.setBeardItem("NONE");
-    	character.setChestItem("HEAVY_HIDE_CHESTPIECE");
-		character.setHandsItem("NONE");
-        character.setLegsItem("WORN_RAGS");
-        character.setFeetItem("NONE");
-
-		character.setMainhandArmament(Items.BLUNT_HAND_AXE.name());
-		character.setOffHandArmament(Items.CUMBERSOME_SMALL_SHIELD.name());
-
-		purchaseTrait(characterName, TraitType.SHIELD_BASH);
-		purchaseTrait(characterName, TraitType.RECOVER);
-		purchaseTrait(characterName, TraitType.TAUNT);
-		purchaseTrait(characterName, TraitType.KICK);
-	}
 
-	private void equipAsShaman(Character character, String characterName) throws IOException {
-		character.setHeadItem("NONE");
-		character.setBeardItem("NONE");
-    	character.setChestItem("CLOTH_TUNIC");
-		character.setHandsItem("NONE");
-        character.setLegsItem("WORN_RAGS");
-        character.setFeetItem("NONE");
-
-		character.setMainhandArmament(Items.BLUNT_HAND_AXE.name());
-		character.setOffHandArmament(Items.CUMBERSOME_SMALL_SHIELD.name());
-
-		purchaseTrait(characterName, TraitType.FROST_BLAST);
-		purchaseTrait(characterName, TraitType.SEIDHRING);
-		purchaseTrait(characterName, TraitType.PETRIFY);
-		purchaseTrait(characterName, TraitType.FRIGGS_INTERVENTION);
+			Optional<Character> updated = characterRepository.updateSlots(name, current.get().getVersion(), slots);
+			if (updated.isPresent()) {
+				return written(updated.get());
+			}
+			// The version we had was stale, read the next one from the primary
+			recentWrites.characterWritten(name, null);
+			characterCache.evict(name, null);
+		}
+		throw new OptimisticLockingFailureException("Could not update " + slots.keySet() + " of " + name
+				+ " after " + SLOT_UPDATE_ATTEMPTS + " attempts");
 	}
 
-	private void equipAsRanger(Character character, String characterName) throws IOException {
-		character.setHeadItem("NONE");
-		character.setBeardItem("NONE");
-		character.setChestItem("RANGERS_HARNESS");
-		character.setHandsItem("NONE");
-        character.setLegsItem("WORN_RAGS");
-        character.setFeetItem("NONE");
-
-		character.setMainhandArmament(Items.BLUNT_HAND_AXE.name());
-		character.setOffHandArmament(Items.CUMBERSOME_SMALL_SHIELD.name());
-
-		purchaseTrait(characterName, TraitType.SHIELD_BREAKER);
-		purchaseTrait(characterName, TraitType.HEMORRHAGE);
-		purchaseTrait(characterName, TraitType.GUNGNIRS_WRATH);
-		purchaseTrait(characterName, TraitType.ONEHANDED_SPECIALIZATION);
+	private void assignSlot(Map<ItemSlot, SlotAssignment> slots, String itemSlot, SlotAssignment assignment) {
+		ItemSlot slot = ItemSlot.fromString(itemSlot);
+		if (slot == null) {
+			logger.error("{} DOES NOT EXIST AS A SLOT!", itemSlot);
+			return;
+		}
+		slots.put(slot, assignment);
 	}
 
 	private void unlockTrait(String characterName, TraitType traitType) throws IOException {
-		traitServiceClient.unlockTrait(new UnlockTraitParameter(characterName, traitType));
+		timed(unlockTraitLatency, () -> traitServiceClient.unlockTrait(new UnlockTraitParameter(characterName, traitType)));
 	}
 
 	private void purchaseTrait(String characterName, TraitType traitType) throws IOException {
-		traitServiceClient.purchaseTrait(new PurchaseTraitParameter(characterName, traitType));
-	}
-
-	private void addDefaultRecipes(String characterName) throws IOException {
-		recipeServiceClient.addRecipe(characterName, "SWORD");
-		recipeServiceClient.addRecipe(characterName, "HAND_AXE");
-		recipeServiceClient.addRecipe(characterName, "LONGSWORD");
-		recipeServiceClient.addRecipe(characterName, "DAGGER");
-		recipeServiceClient.addRecipe(characterName, "WARHAMMER");
-		recipeServiceClient.addRecipe(characterName, "GREATAXE");
-		recipeServiceClient.addRecipe(characterName, "SMALL_SHIELD");
-		recipeServiceClient.addRecipe(characterName, "MEDIUM_SHIELD");
-		recipeServiceClient.addRecipe(characterName, "LARGE_SHIELD");
-		recipeServiceClient.addRecipe(characterName, "STEEL_SHIELD");
-		recipeServiceClient.addRecipe(characterName, "TORCH");
-		recipeServiceClient.addRecipe(characterName, "HUNTING_BOW");
+		timed(purchaseTraitLatency,
+				() -> traitServiceClient.purchaseTrait(new PurchaseTraitParameter(characterName, traitType)));
 	}
 
-	private enum AllowedClasses {
-		WARRIOR,
-		SHAMAN,
-		RANGER,
-		DEBUG;
-
-		static AllowedClasses get(String enumStringValue){
-			return AllowedClasses.valueOf(enumStringValue.toUpperCase());
-		}
-
-		static boolean has(String enumStringValue){
-			try{
-				get(enumStringValue);
-				return true;
-			} catch (IllegalArgumentException e){
-				return false;
-			}
+	private static void timed(LatencyHistogram histogram, ProvisioningPipeline.Call call) throws IOException {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			call.execute();
+			failed = false;
+		} finally {
+			histogram.record(System.nanoTime() - start, failed);
 		}
 	}
 
 	public void equipCharacter(Character character, EquippedItemParameter equippedItem) {
-		String item = equippedItem.getItem();
-		String itemSlot = equippedItem.getItemSlot();
-		String metaData = equippedItem.getMetaData();
-		switch (itemSlot) {
-			case "MAINHAND":
-				character.setMainhandArmament(item);
-				character.setMainhandArmamentMetaData(metaData);
-				break;
-			case "OFFHAND":
-				character.setOffHandArmament(item);
-				character.setOffHandArmamentMetaData(metaData);
-				break;
-			case "HEAD":
-				character.setHeadItem(item);
-				character.setHeadItemMetaData(metaData);
-				break;
-			case "BEARD":
-				character.setBeardItem(item);
-				character.setBeardItemMetaData(metaData);
-				break;
-			case "CHEST":
-				character.setChestItem(item);
-				character.setChestItemMetaData(metaData);
-				break;
-			case "HANDS":
-				character.setHandsItem(item);
-				character.setHandsItemMetaData(metaData);
-				break;
-			case "LEGS":
-				character.setLegsItem(item);
-				character.setLegsItemMetaData(metaData);
-				break;
-			case "FEET":
-				character.setFeetItem(item);
-				character.setFeetItemMetaData(metaData);
-				break;
-			default:
-				logger.error("{} DOES NOT EXIST AS A SLOT!", itemSlot);
-				break;
+		ItemSlot slot = ItemSlot.fromString(equippedItem.getItemSlot());
+		if (slot == null) {
+			logger.error("{} DOES NOT EXIST AS A SLOT!", equippedItem.getItemSlot());
+			return;
 		}
+		slot.equip(character, equippedItem.getItem(), equippedItem.getMetaData());
 	}
 
 	public void unequipCharacter(Character character, String itemSlot) {
-		switch (itemSlot) {
-			case "MAINHAND":
-				character.setMainhandArmament("None");
-				character.setMainhandArmamentMetaData(null);
-				break;
-			case "OFFHAND":
-				character.setOffHandArmament("None");
-				character.setOffHandArmamentMetaData(null);
-				break;
-			case "HEAD":
-				character.setHeadItem("None");
-				character.setHeadItemMetaData(null);
-				break;
-			case "BEARD":
-				character.setBeardItem("None");
-				character.setBeardItemMetaData(null);
-				break;
-			case "CHEST":
-				character.setChestItem("None");
-				character.setChestItemMetaData(null);
-				break;
-			case "HANDS":
-				character.setHandsItem("None");
-				character.setHandsItemMetaData(null);
-				break;
-			case "LEGS":
-				character.setLegsItem("None");
-				character.setLegsItemMetaData(null);
-				break;
-			case "FEET":
-				character.setFeetItem("None");
-				character.setFeetItemMetaData(null);
-				break;
-			default:
-				logger.error("{} DOES NOT EXIST AS A SLOT!", itemSlot);
-				break;
+		ItemSlot slot = ItemSlot.fromString(itemSlot);
+		if (slot == null) {
+			logger.error("{} DOES NOT EXIST AS A SLOT!", itemSlot);
+			return;
 		}
+		slot.unequip(character);
 	}
 }
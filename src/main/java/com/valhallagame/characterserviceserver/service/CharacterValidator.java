@@ -0,0 +1,34 @@
+package com.valhallagame.characterserviceserver.service;
+
+import com.valhallagame.characterserviceserver.model.AllowedClasses;
+
+/**
+ * Checks character names and starting classes before anything touches the database or another service, so
+ * rejected creation attempts never cost a lookup or an exception. Names follow the rules the endpoints always
+ * had: present and without '#'. Anything else, non-ASCII letters included, is allowed. Returns null when the
+ * input is fine.
+ */
+public final class CharacterValidator {
+
+	private CharacterValidator() {
+	}
+
+	public static CreationError validateName(String characterName) {
+		if (characterName == null || characterName.isEmpty()) {
+			return CreationError.NAME_MISSING;
+		}
+		// '#' gets its own code since clients already special-case it
+		if (characterName.indexOf('#') >= 0) {
+			return CreationError.NAME_CONTAINS_HASH;
+		}
+		return null;
+	}
+
+	public static CreationError validateCreation(String characterName, String startingClass) {
+		CreationError nameError = validateName(characterName);
+		if (nameError != null) {
+			return nameError;
+		}
+		return AllowedClasses.fromString(startingClass) == null ? CreationError.CLASS_UNKNOWN : null;
+	}
+}
@@ -0,0 +1,34 @@
+package com.valhallagame.characterserviceserver.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Why a character name or starting class was rejected. The code is stable and meant for clients to switch on,
+ * the message is for humans.
+ */
+public enum CreationError {
+	NAME_MISSING(HttpStatus.BAD_REQUEST, "Missing characterName field"),
+	NAME_CONTAINS_HASH(HttpStatus.BAD_REQUEST, "# is not allowed in character name"),
+	CLASS_UNKNOWN(HttpStatus.BAD_REQUEST, "Unknown starting class");
+
+	private final HttpStatus status;
+
+	private final String message;
+
+	CreationError(HttpStatus status, String message) {
+		this.status = status;
+		this.message = message;
+	}
+
+	public String getCode() {
+		return name();
+	}
+
+	public HttpStatus getStatus() {
+		return status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
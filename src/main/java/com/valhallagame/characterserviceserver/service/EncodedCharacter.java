@@ -0,0 +1,72 @@
+package com.valhallagame.characterserviceserver.service;
+
+import com.valhallagame.characterserviceserver.model.Character;
+
+import java.util.zip.CRC32;
+
+/**
+ * A character response body as it goes over the wire, with the ETag that identifies it. The tag combines the row
+ * version with a checksum of the body, so a character that is deleted and created again under the same name
+ * never shares a tag with its predecessor, and neither do the different encodings of one version.
+ */
+public class EncodedCharacter {
+
+	private final String characterName;
+
+	private final String ownerUsername;
+
+	private final long version;
+
+	private final String etag;
+
+	private final byte[] body;
+
+	public EncodedCharacter(Character character, byte[] body) {
+		this.characterName = character.getCharacterName();
+		this.ownerUsername = character.getOwnerUsername();
+		this.version = character.getVersion();
+		this.body = body;
+		CRC32 checksum = new CRC32();
+		checksum.update(body);
+		this.etag = "\"" + Long.toHexString(version) + "-" + Long.toHexString(checksum.getValue()) + "\"";
+	}
+
+	/**
+	 * Whether an If-None-Match header names this body, weak tags and {@code *} included.
+	 */
+	public boolean matches(String ifNoneMatch) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			String trimmed = tag.trim();
+			if (trimmed.startsWith("W/")) {
+				trimmed = trimmed.substring(2);
+			}
+			if (trimmed.equals(etag) || trimmed.equals("*")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public String getCharacterName() {
+		return characterName;
+	}
+
+	public String getOwnerUsername() {
+		return ownerUsername;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+}
@@ -0,0 +1,79 @@
+package com.valhallagame.characterserviceserver.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Access-ordered map that drops its least recently used entry once it grows past {@code maxSize} and treats
+ * entries older than the time to live as absent. Not thread safe, callers synchronize around it.
+ */
+class ExpiringLruMap<K, V> {
+	private final long ttlNanos;
+
+	private final LinkedHashMap<K, Entry<V>> entries;
+
+	private long evictions;
+
+	ExpiringLruMap(int maxSize, long ttlNanos) {
+		this.ttlNanos = ttlNanos;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				if (size() > maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (System.nanoTime() - entry.created > ttlNanos) {
+			entries.remove(key);
+			evictions++;
+			return null;
+		}
+		return entry.value;
+	}
+
+	V peek(K key) {
+		Entry<V> entry = entries.get(key);
+		return entry == null ? null : entry.value;
+	}
+
+	void put(K key, V value) {
+		entries.put(key, new Entry<>(value, System.nanoTime()));
+	}
+
+	void remove(K key) {
+		entries.remove(key);
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	long getEvictions() {
+		return evictions;
+	}
+
+	private static class Entry<V> {
+		private final V value;
+
+		private final long created;
+
+		private Entry(V value, long created) {
+			this.value = value;
+			this.created = created;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.valhallagame.characterserviceserver.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the outbound calls needed to provision a new character. Calls within a stage run concurrently on the
+ * provisioning executor while the stages themselves run in order, so a trait is always unlocked before it is
+ * purchased and purchased before it is skilled.
+ */
+public class ProvisioningPipeline {
+
+	@FunctionalInterface
+	public interface Call {
+		void execute() throws IOException;
+	}
+
+	private final ExecutorService executor;
+
+	private final List<Stage> stages = new ArrayList<>();
+
+	public ProvisioningPipeline(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public Stage stage(String name) {
+		Stage stage = new Stage(name);
+		stages.add(stage);
+		return stage;
+	}
+
+	/**
+	 * Runs every stage and collects the outcome of each call. A failed required call stops the pipeline after
+	 * its stage has finished, since later stages depend on it; the remaining calls are reported as skipped.
+	 */
+	public ProvisioningResult run() throws InterruptedException {
+		List<ProvisioningResult.Step> steps = new ArrayList<>();
+		boolean aborted = false;
+		for (Stage stage : stages) {
+			if (aborted) {
+				for (StageCall stageCall : stage.calls) {
+					steps.add(ProvisioningResult.Step.skipped(stage.name, stageCall.name, stageCall.required));
+				}
+				continue;
+			}
+
+			List<Future<ProvisioningResult.Step>> futures = new ArrayList<>(stage.calls.size());
+			for (StageCall stageCall : stage.calls) {
+				futures.add(executor.submit(() -> stageCall.execute(stage.name)));
+			}
+
+			for (Future<ProvisioningResult.Step> future : futures) {
+				ProvisioningResult.Step step = await(future);
+				steps.add(step);
+				if (step.isRequired() && step.getError() != null) {
+					aborted = true;
+				}
+			}
+		}
+		return new ProvisioningResult(steps);
+	}
+
+	private static ProvisioningResult.Step await(Future<ProvisioningResult.Step> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			// StageCall.execute catches everything itself, so this only happens on an executor bug.
+			throw new IllegalStateException("Provisioning call failed unexpectedly", e.getCause());
+		}
+	}
+
+	public static class Stage {
+		private final String name;
+
+		private final List<StageCall> calls = new ArrayList<>();
+
+		private Stage(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Adds a call whose failure fails the whole provisioning.
+		 */
+		public Stage call(String name, Call call) {
+			calls.add(new StageCall(name, call, true));
+			return this;
+		}
+
+		/**
+		 * Adds a call whose failure is reported but does not stop later stages.
+		 */
+		public Stage optionalCall(String name, Call call) {
+			calls.add(new StageCall(name, call, false));
+			return this;
+		}
+	}
+
+	private static class StageCall {
+		private final String name;
+
+		private final Call call;
+
+		private final boolean required;
+
+		private StageCall(String name, Call call, boolean required) {
+			this.name = name;
+			this.call = call;
+			this.required = required;
+		}
+
+		private ProvisioningResult.Step execute(String stageName) {
+			long start = System.nanoTime();
+			try {
+				call.execute();
+				return new ProvisioningResult.Step(stageName, name, required, System.nanoTime() - start, null);
+			} catch (Exception e) {
+				return new ProvisioningResult.Step(stageName, name, required, System.nanoTime() - start, e);
+			}
+		}
+	}
+}
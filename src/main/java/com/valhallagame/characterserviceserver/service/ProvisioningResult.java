@@ -0,0 +1,77 @@
+package com.valhallagame.characterserviceserver.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a {@link ProvisioningPipeline} run: one entry per call with its latency and, if it failed, why.
+ */
+@Getter
+public class ProvisioningResult {
+
+	private final List<Step> steps;
+
+	public ProvisioningResult(List<Step> steps) {
+		this.steps = Collections.unmodifiableList(steps);
+	}
+
+	public boolean isSuccessful() {
+		return getRequiredFailures().isEmpty();
+	}
+
+	public List<Step> getRequiredFailures() {
+		return steps.stream().filter(step -> step.isRequired() && !step.isOk()).collect(Collectors.toList());
+	}
+
+	public List<Step> getOptionalFailures() {
+		return steps.stream().filter(step -> !step.isRequired() && !step.isOk()).collect(Collectors.toList());
+	}
+
+	public String describeFailures() {
+		return getRequiredFailures().stream().map(Step::toString).collect(Collectors.joining(", "));
+	}
+
+	public String describeLatencies() {
+		return steps.stream().map(Step::toString).collect(Collectors.joining(", "));
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class Step {
+		private final String stage;
+
+		private final String name;
+
+		private final boolean required;
+
+		private final long nanos;
+
+		private final Exception error;
+
+		static Step skipped(String stage, String name, boolean required) {
+			return new Step(stage, name, required, -1, null);
+		}
+
+		public boolean isSkipped() {
+			return nanos < 0;
+		}
+
+		public boolean isOk() {
+			return error == null && !isSkipped();
+		}
+
+		@Override
+		public String toString() {
+			if (isSkipped()) {
+				return stage + "/" + name + "=skipped";
+			}
+			String result = stage + "/" + name + "=" + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+			return error == null ? result : result + " (" + error.getMessage() + ")";
+		}
+	}
+}
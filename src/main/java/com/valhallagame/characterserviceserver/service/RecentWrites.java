@@ -0,0 +1,82 @@
+package com.valhallagame.characterserviceserver.service;
+
+import com.valhallagame.characterserviceserver.replica.ReplicaContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Owners and characters written in the last {@code character.replicas.sticky-ms}, by this node or, as far as
+ * the invalidation messages tell, by another one. Reads about them stay on the primary so a player sees their
+ * own change even while the replicas have not caught up; all other reads may go to a replica. Keep the window
+ * above the replica lag bound.
+ */
+@Component
+public class RecentWrites {
+
+	private final ExpiringLruMap<String, Boolean> written;
+
+	private long stickyReads;
+
+	public RecentWrites(@Value("${character.replicas.sticky-max-size:100000}") int maxSize,
+						@Value("${character.replicas.sticky-ms:5000}") long stickyMs) {
+		this.written = new ExpiringLruMap<>(maxSize, TimeUnit.MILLISECONDS.toNanos(stickyMs));
+	}
+
+	public synchronized void ownerWritten(String owner) {
+		if (owner != null) {
+			written.put(ownerKey(owner), Boolean.TRUE);
+		}
+	}
+
+	public synchronized void characterWritten(String characterName, String owner) {
+		if (characterName != null) {
+			written.put(characterKey(characterName), Boolean.TRUE);
+		}
+		ownerWritten(owner);
+	}
+
+	/**
+	 * Loads something about a character, from a replica unless the character was written recently.
+	 */
+	public <T> T readCharacter(String characterName, Supplier<T> loader) {
+		return read(characterKey(characterName), loader);
+	}
+
+	/**
+	 * Loads something about an owner, from a replica unless one of their characters or their selection was
+	 * written recently.
+	 */
+	public <T> T readOwner(String owner, Supplier<T> loader) {
+		return read(ownerKey(owner), loader);
+	}
+
+	public synchronized int size() {
+		return written.size();
+	}
+
+	public synchronized long getStickyReads() {
+		return stickyReads;
+	}
+
+	private <T> T read(String key, Supplier<T> loader) {
+		boolean sticky;
+		synchronized (this) {
+			sticky = written.get(key) != null;
+			if (sticky) {
+				stickyReads++;
+			}
+		}
+		return sticky ? loader.get() : ReplicaContext.callReadOnly(loader);
+	}
+
+	private static String ownerKey(String owner) {
+		return "owner:" + owner.toLowerCase();
+	}
+
+	private static String characterKey(String characterName) {
+		return "character:" + characterName.toLowerCase();
+	}
+}
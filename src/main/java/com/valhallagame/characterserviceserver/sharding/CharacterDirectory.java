@@ -0,0 +1,195 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The cross-shard tables in the directory database: the shard of every owner and the owner of every character
+ * name. The primary key on the name is what keeps names unique across shards. A name is claimed and released in
+ * two steps around the shard write, with the row marked pending in between, so the {@link DirectoryReconciler} can
+ * settle what a node that died half way left behind. Lookups are cached and the caches
+ * are dropped by {@link ShardRouter} on a timer and on invalidation messages, which bounds how long a node can
+ * route by an ownership that changed elsewhere. Every statement runs on the directory, also when called from
+ * work bound to a shard, but never inside a shard's transaction, which would hand it the shard's connection.
+ */
+public class CharacterDirectory {
+
+	private static final String PLACE_OWNER = "INSERT INTO owner_shard (owner, shard) VALUES (?, ?)"
+			+ " ON CONFLICT (owner) DO NOTHING";
+
+	private static final String ASSIGN_OWNER = "INSERT INTO owner_shard (owner, shard) VALUES (?, ?)"
+			+ " ON CONFLICT (owner) DO UPDATE SET shard = EXCLUDED.shard";
+
+	private static final String ASSIGN_NAME = "INSERT INTO character_directory (character_name, owner) VALUES (?, ?)"
+			+ " ON CONFLICT (character_name) DO UPDATE SET owner = EXCLUDED.owner";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final Map<String, String> shardsByOwner = new ConcurrentHashMap<>();
+
+	private final Map<String, String> ownersByName = new ConcurrentHashMap<>();
+
+	public CharacterDirectory(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * The shard of an owner, or null if the owner has never been placed.
+	 */
+	public String findShard(String owner) {
+		String shard = shardsByOwner.get(owner);
+		if (shard == null) {
+			shard = queryForOptional("SELECT shard FROM owner_shard WHERE owner = ?", owner);
+			if (shard != null) {
+				shardsByOwner.put(owner, shard);
+			}
+		}
+		return shard;
+	}
+
+	/**
+	 * Places an owner on the given shard unless another node got there first, and returns where it ended up.
+	 */
+	public String placeOwner(String owner, String shard) {
+		update(PLACE_OWNER, owner, shard);
+		shardsByOwner.remove(owner);
+		return findShard(owner);
+	}
+
+	/**
+	 * Points an owner and the given names of theirs at a shard, whether or not they were placed before. Used by
+	 * moves once the copy on the target shard is complete.
+	 */
+	public void assign(String owner, String shard, Collection<String> characterNames) {
+		List<Object[]> names = characterNames.stream()
+				.map(characterName -> new Object[] { characterName, owner })
+				.collect(Collectors.toList());
+		ShardContext.onDirectory(() -> {
+			jdbcTemplate.update(ASSIGN_OWNER, owner, shard);
+			return jdbcTemplate.batchUpdate(ASSIGN_NAME, names);
+		});
+		shardsByOwner.remove(owner);
+		characterNames.forEach(ownersByName::remove);
+	}
+
+	/**
+	 * The owner of a character name, or null if no shard holds a character by that name.
+	 */
+	public String findOwner(String characterName) {
+		String owner = ownersByName.get(characterName);
+		if (owner == null) {
+			owner = queryForOptional("SELECT owner FROM character_directory WHERE character_name = ?", characterName);
+			if (owner != null) {
+				ownersByName.put(characterName, owner);
+			}
+		}
+		return owner;
+	}
+
+	/**
+	 * Claims a name for an owner, pending until {@link #confirm(String)}. Fails with a duplicate key exception when
+	 * any shard already uses it.
+	 */
+	public void register(String characterName, String owner) {
+		update("INSERT INTO character_directory (character_name, owner, pending_since) VALUES (?, ?, now())",
+				characterName, owner);
+		ownersByName.put(characterName, owner);
+	}
+
+	/**
+	 * Marks a name pending before a shard write that may remove it or change its owner.
+	 */
+	public void markPending(String characterName) {
+		update("UPDATE character_directory SET pending_since = now() WHERE character_name = ?", characterName);
+	}
+
+	/**
+	 * Ends the pending state once the shard write is done, or was rolled back and left the name as it was.
+	 */
+	public void confirm(String characterName) {
+		update("UPDATE character_directory SET pending_since = NULL WHERE character_name = ?", characterName);
+	}
+
+	public void changeOwner(String characterName, String owner) {
+		update("UPDATE character_directory SET owner = ?, pending_since = NULL WHERE character_name = ?", owner,
+				characterName);
+		ownersByName.remove(characterName);
+	}
+
+	public void unregister(String characterName) {
+		update("DELETE FROM character_directory WHERE character_name = ?", characterName);
+		ownersByName.remove(characterName);
+	}
+
+	/**
+	 * Names and their owners that have been pending for longer than the given time.
+	 */
+	public Map<String, String> findPending(long olderThanMs) {
+		Map<String, String> pending = new LinkedHashMap<>();
+		ShardContext.run(null, () -> jdbcTemplate.query("SELECT character_name, owner FROM character_directory"
+				+ " WHERE pending_since < now() - ? * interval '1 millisecond' ORDER BY pending_since", rs -> {
+					pending.put(rs.getString("character_name"), rs.getString("owner"));
+				}, olderThanMs));
+		return pending;
+	}
+
+	/**
+	 * Settles a name the reconciler found on a shard, unless it stopped being pending in the meantime.
+	 */
+	public void settle(String characterName, String owner) {
+		update("UPDATE character_directory SET owner = ?, pending_since = NULL"
+				+ " WHERE character_name = ? AND pending_since IS NOT NULL", owner, characterName);
+		ownersByName.remove(characterName);
+	}
+
+	/**
+	 * Releases a name the reconciler found on no shard, unless it stopped being pending or was claimed again
+	 * within the given time.
+	 */
+	public void release(String characterName, long olderThanMs) {
+		update("DELETE FROM character_directory WHERE character_name = ?"
+				+ " AND pending_since < now() - ? * interval '1 millisecond'", characterName, olderThanMs);
+		ownersByName.remove(characterName);
+	}
+
+	public List<String> findAllNames() {
+		return ShardContext.onDirectory(() ->
+				jdbcTemplate.queryForList("SELECT character_name FROM character_directory", String.class));
+	}
+
+	/**
+	 * Every placed owner and their shard, for the rebalancer.
+	 */
+	public Map<String, String> getPlacements() {
+		Map<String, String> placements = new LinkedHashMap<>();
+		ShardContext.run(null, () -> jdbcTemplate.query("SELECT owner, shard FROM owner_shard ORDER BY owner",
+				rs -> {
+					placements.put(rs.getString("owner"), rs.getString("shard"));
+				}));
+		return placements;
+	}
+
+	public void forget(String characterName) {
+		ownersByName.remove(characterName);
+	}
+
+	public void clearCaches() {
+		shardsByOwner.clear();
+		ownersByName.clear();
+	}
+
+	private void update(String sql, Object... args) {
+		ShardContext.onDirectory(() -> jdbcTemplate.update(sql, args));
+	}
+
+	private String queryForOptional(String sql, String key) {
+		List<String> values = ShardContext.onDirectory(() -> jdbcTemplate.queryForList(sql, String.class, key));
+		return values.isEmpty() ? null : values.get(0);
+	}
+}
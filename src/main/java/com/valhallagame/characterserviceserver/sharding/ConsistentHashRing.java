@@ -0,0 +1,61 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Places owners on shards. Every shard owns a number of points on a 64 bit ring and a key goes to the first point
+ * at or after its hash, so adding a shard only takes over about its fair share of owners from the others and
+ * removing one only moves the owners it had. The hash is fixed, not {@link String#hashCode()}, so every node and
+ * the rebalancer agree on the placement.
+ */
+public class ConsistentHashRing {
+
+	private final NavigableMap<Long, String> points = new TreeMap<>();
+
+	private final List<String> shards;
+
+	public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("A ring needs at least one shard");
+		}
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+		for (String shard : shards) {
+			for (int i = 0; i < virtualNodes; i++) {
+				points.put(hash(shard + "#" + i), shard);
+			}
+		}
+	}
+
+	public String shardFor(String key) {
+		Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+		return point != null ? point.getValue() : points.firstEntry().getValue();
+	}
+
+	public List<String> getShards() {
+		return shards;
+	}
+
+	/**
+	 * 64 bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer to spread similar keys apart.
+	 */
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,75 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Settles directory rows that stayed pending because a node died between the directory and the shard write of a
+ * create, delete or change of owner. Once a row has been pending for {@code
+ * character.sharding.reconcile.grace-ms}, far longer than any of those writes takes, the shard the directory
+ * points at decides: a character there keeps the name for the owner the shard has, no character there frees it.
+ * Every step is conditional on the row still being pending, so several nodes can run this at the same time.
+ */
+@Component
+@ConditionalOnProperty("character.sharding.enabled")
+public class DirectoryReconciler {
+	private static final Logger logger = LoggerFactory.getLogger(DirectoryReconciler.class);
+
+	private final ShardRouter router;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final long graceMs;
+
+	@Autowired
+	public DirectoryReconciler(ShardRouter router, JdbcTemplate jdbcTemplate,
+							   @Value("${character.sharding.reconcile.grace-ms:300000}") long graceMs) {
+		this.router = router;
+		this.jdbcTemplate = jdbcTemplate;
+		this.graceMs = graceMs;
+	}
+
+	@Scheduled(fixedDelayString = "${character.sharding.reconcile.interval-ms:60000}")
+	public void reconcile() {
+		CharacterDirectory directory = router.getDirectory();
+		for (Map.Entry<String, String> entry : directory.findPending(graceMs).entrySet()) {
+			String characterName = entry.getKey();
+			try {
+				Optional<String> owner = findOwnerOnShard(characterName, entry.getValue());
+				if (owner.isPresent()) {
+					logger.info("Settling pending directory entry {} for {}", characterName, owner.get());
+					directory.settle(characterName, owner.get());
+				} else {
+					logger.info("Releasing pending directory entry {}, no shard holds it", characterName);
+					directory.release(characterName, graceMs);
+				}
+			} catch (RuntimeException e) {
+				logger.error("Failed to reconcile directory entry " + characterName, e);
+			}
+		}
+	}
+
+	/**
+	 * The owner the character has on the shard of the owner the directory knows, which only differs from that one
+	 * when the owner changed within the shard.
+	 */
+	private Optional<String> findOwnerOnShard(String characterName, String directoryOwner) {
+		Optional<String> shard = router.findShardForOwner(directoryOwner);
+		if (!shard.isPresent()) {
+			return Optional.empty();
+		}
+		List<String> owners = ShardContext.call(shard.get(), () -> jdbcTemplate.queryForList(
+				"SELECT owner FROM character WHERE character_name = ?", String.class, characterName));
+		return owners.stream().findFirst().map(String::toLowerCase);
+	}
+}
@@ -0,0 +1,43 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import com.valhallagame.characterserviceserver.model.CharacterProfile;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * Routes {@code CharacterProfileRepository} calls, which all take the character name first, to the shard of that
+ * character. Events for a name no shard knows yet are dropped; they can only come from provisioning a character
+ * that is still being created, and its profile is seeded in full once it is stored.
+ */
+public class ProfileShardRoutingInterceptor implements MethodInterceptor {
+	private static final Logger logger = LoggerFactory.getLogger(ProfileShardRoutingInterceptor.class);
+
+	private final ShardRouter router;
+
+	public ProfileShardRoutingInterceptor(ShardRouter router) {
+		this.router = router;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Object[] args = invocation.getArguments();
+		if (ShardContext.isBound() || args.length == 0 || !(args[0] instanceof String)) {
+			return invocation.proceed();
+		}
+
+		String characterName = (String) args[0];
+		Optional<String> shard = router.findShardForCharacter(characterName);
+		if (!shard.isPresent()) {
+			logger.debug("No shard holds {}, skipping {}", characterName, invocation.getMethod().getName());
+			return invocation.getMethod().getReturnType() == CharacterProfile.class
+					? new CharacterProfile(characterName)
+					: null;
+		}
+
+		return ShardRoutingInterceptor.proceedOn(shard.get(), invocation);
+	}
+}
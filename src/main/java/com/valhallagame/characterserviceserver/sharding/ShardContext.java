@@ -0,0 +1,67 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread talks to. {@link ShardRoutingDataSource} hands out connections to this shard, and
+ * to the directory database when the thread is bound to the directory or not bound at all. Has to be set before
+ * a transaction starts since the connection is picked when it begins.
+ */
+public final class ShardContext {
+
+	/**
+	 * Marks work that was explicitly bound to the directory, as opposed to work that was not bound at all.
+	 */
+	private static final String DIRECTORY = "\0directory";
+
+	private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+	private ShardContext() {
+	}
+
+	/**
+	 * The bound shard, null for the directory or when nothing is bound.
+	 */
+	public static String current() {
+		String shard = current.get();
+		return shard == DIRECTORY ? null : shard;
+	}
+
+	/**
+	 * Whether the thread was bound to a shard or the directory, in which case repositories do not route again.
+	 */
+	public static boolean isBound() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Runs the work bound to the given shard, or to the directory if the shard is null.
+	 */
+	public static <T> T call(String shard, Supplier<T> work) {
+		String previous = current.get();
+		current.set(shard == null ? DIRECTORY : shard);
+		try {
+			return work.get();
+		} finally {
+			if (previous == null) {
+				current.remove();
+			} else {
+				current.set(previous);
+			}
+		}
+	}
+
+	public static void run(String shard, Runnable work) {
+		call(shard, () -> {
+			work.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Runs against the directory database, also from inside work that is bound to a shard.
+	 */
+	public static <T> T onDirectory(Supplier<T> work) {
+		return call(null, work);
+	}
+}
@@ -0,0 +1,142 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Copies characters, their profile entries and the owner's selection from one shard to another and removes them
+ * from the source afterwards. The directory is switched between the two, so a move that fails half way leaves
+ * either an unused copy on the target, which the next attempt clears first, or an unused original on the source.
+ * Moves do not publish events, nothing changes from the outside.
+ */
+public class ShardMover {
+	private static final Logger logger = LoggerFactory.getLogger(ShardMover.class);
+
+	private static final String SELECT_PROFILE = "SELECT character_name, kind, entry_key, value"
+			+ " FROM character_profile_entry WHERE character_name IN (:names)";
+
+	private static final String INSERT_PROFILE = "INSERT INTO character_profile_entry"
+			+ " (character_name, kind, entry_key, value) VALUES (?, ?, ?, ?)";
+
+	private final ObjectFactory<CharacterRepository> characterRepository;
+
+	private final CharacterDirectory directory;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	public ShardMover(ObjectFactory<CharacterRepository> characterRepository, CharacterDirectory directory,
+					  JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+		this.characterRepository = characterRepository;
+		this.directory = directory;
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * Moves everything an owner has to another shard. A null source is the directory database, which is where
+	 * the characters of a deployment that was not sharded before are imported from.
+	 */
+	public void moveOwner(String owner, String from, String to) {
+		List<Character> characters = ShardContext.call(from,
+				() -> characterRepository.getObject().findByOwnerUsername(owner));
+		List<String> names = characters.stream().map(Character::getCharacterName).collect(Collectors.toList());
+		List<String> selected = ShardContext.call(from, () -> jdbcTemplate.queryForList(
+				"SELECT character_name FROM selected_character WHERE owner = ?", String.class, owner));
+		List<Object[]> profile = ShardContext.call(from, () -> readProfile(names));
+
+		ShardContext.run(to, () -> transactionTemplate.execute(status -> {
+			deleteOwner(owner);
+			characters.forEach(character -> insertCopy(character, character.getVersion()));
+			selected.forEach(characterName -> jdbcTemplate.update(
+					"INSERT INTO selected_character (owner, character_name) VALUES (?, ?)", owner, characterName));
+			jdbcTemplate.batchUpdate(INSERT_PROFILE, profile);
+			return null;
+		}));
+
+		directory.assign(owner, to, names);
+		ShardContext.run(from, () -> transactionTemplate.execute(status -> {
+			deleteOwner(owner);
+			return null;
+		}));
+		logger.info("Moved {} characters of {} from shard {} to {}", characters.size(), owner, from, to);
+	}
+
+	/**
+	 * Moves a single character that was given to an owner on another shard. The character is written with its
+	 * new owner; the old owner's selection of it goes away with the original.
+	 */
+	public Character moveCharacter(Character character, String from, String to) {
+		String characterName = character.getCharacterName();
+		List<Object[]> profile = ShardContext.call(from, () -> readProfile(Collections.singletonList(characterName)));
+
+		Character moved = ShardContext.call(to, () -> transactionTemplate.execute(status -> {
+			deleteCharacters(Collections.singletonList(characterName));
+			// Counts as a write of the character, like the save it stands in for
+			Character copy = insertCopy(character, character.getVersion() + 1);
+			jdbcTemplate.batchUpdate(INSERT_PROFILE, profile);
+			return copy;
+		}));
+
+		moved.setVersion(character.getVersion() + 1);
+		directory.changeOwner(characterName, character.getOwnerUsername().toLowerCase());
+		ShardContext.run(from, () -> transactionTemplate.execute(status -> {
+			deleteCharacters(Collections.singletonList(characterName));
+			return null;
+		}));
+		return moved;
+	}
+
+	/**
+	 * Inserts a copy at the given version, so caches that compare versions keep working across the move. Call it
+	 * inside a transaction and set the version on the returned copy once that is over.
+	 */
+	private Character insertCopy(Character character, long version) {
+		Character copy = new Character(character);
+		// Persist only takes entities that look new
+		copy.setVersion(0);
+		Character inserted = characterRepository.getObject().insertCharacter(copy);
+		jdbcTemplate.update("UPDATE character SET version = ? WHERE character_name = ?", version,
+				character.getCharacterName());
+		return inserted;
+	}
+
+	private List<Object[]> readProfile(Collection<String> names) {
+		if (names.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return namedJdbcTemplate.query(SELECT_PROFILE, Collections.singletonMap("names", names),
+				(rs, rowNum) -> new Object[] { rs.getString("character_name"), rs.getString("kind"),
+						rs.getString("entry_key"), rs.getObject("value") });
+	}
+
+	private void deleteOwner(String owner) {
+		jdbcTemplate.update("DELETE FROM character_profile_entry WHERE character_name IN"
+				+ " (SELECT character_name FROM character WHERE owner = ?)", owner);
+		// The selection goes with the cascade from character
+		jdbcTemplate.update("DELETE FROM character WHERE owner = ?", owner);
+	}
+
+	private void deleteCharacters(List<String> names) {
+		namedJdbcTemplate.update("DELETE FROM character_profile_entry WHERE character_name IN (:names)",
+				Collections.singletonMap("names", names));
+		namedJdbcTemplate.update("DELETE FROM character WHERE character_name IN (:names)",
+				Collections.singletonMap("names", names));
+	}
+}
@@ -0,0 +1,107 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings the placements in line with the ring after shards were added or removed, and imports the characters of
+ * a database that was the single database before sharding was turned on and is now the directory. Runs once at
+ * startup with {@code character.sharding.rebalance.run=true}; {@code character.sharding.rebalance.dry-run=true}
+ * only logs what would move. Owners are moved one at a time and every step can be repeated, so an interrupted run
+ * is finished by running it again. Characters of an owner being moved must not be written meanwhile, so run it
+ * in a maintenance window.
+ */
+@Component
+@ConditionalOnProperty("character.sharding.rebalance.run")
+public class ShardRebalancer {
+	private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+	private final ShardRouter router;
+
+	private final ShardMover mover;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final boolean dryRun;
+
+	@Autowired
+	public ShardRebalancer(ShardRouter router, ShardMover mover, JdbcTemplate jdbcTemplate,
+						   @Value("${character.sharding.rebalance.dry-run:false}") boolean dryRun) {
+		this.router = router;
+		this.mover = mover;
+		this.jdbcTemplate = jdbcTemplate;
+		this.dryRun = dryRun;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebalance() {
+		ConsistentHashRing ring = router.getRing();
+		int moved = 0;
+		int failed = 0;
+
+		for (String owner : findUnshardedOwners()) {
+			String target = ring.shardFor(owner);
+			logger.info("{} {} from the directory database to {}", dryRun ? "Would import" : "Importing", owner,
+					target);
+			if (move(owner, null, target)) {
+				moved++;
+			} else {
+				failed++;
+			}
+		}
+
+		for (Map.Entry<String, String> placement : router.getDirectory().getPlacements().entrySet()) {
+			String owner = placement.getKey();
+			String target = ring.shardFor(owner);
+			if (target.equals(placement.getValue())) {
+				continue;
+			}
+			logger.info("{} {} from {} to {}", dryRun ? "Would move" : "Moving", owner, placement.getValue(), target);
+			if (move(owner, placement.getValue(), target)) {
+				moved++;
+			} else {
+				failed++;
+			}
+		}
+		logger.info("Rebalance {}: {} owners moved, {} failed", dryRun ? "dry run done" : "done", moved, failed);
+	}
+
+	private boolean move(String owner, String from, String to) {
+		if (dryRun) {
+			return true;
+		}
+		try {
+			mover.moveOwner(owner, from, to);
+			return true;
+		} catch (RuntimeException e) {
+			logger.error("Failed to move " + owner + " to " + to, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Owners that still have characters in the directory database, which only happens when it was the single
+	 * database before.
+	 */
+	private List<String> findUnshardedOwners() {
+		return ShardContext.onDirectory(() -> {
+			Boolean hasCharacters = jdbcTemplate.queryForObject(
+					"SELECT to_regclass('character') IS NOT NULL", Boolean.class);
+			if (!Boolean.TRUE.equals(hasCharacters)) {
+				return Collections.<String>emptyList();
+			}
+			return jdbcTemplate.queryForList("SELECT DISTINCT owner FROM character ORDER BY owner", String.class);
+		});
+	}
+}
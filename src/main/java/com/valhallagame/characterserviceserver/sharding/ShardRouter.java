@@ -0,0 +1,109 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard a character or owner lives on. Owners are placed by the {@link ConsistentHashRing} the
+ * first time they are seen and then looked up in the {@link CharacterDirectory}, so a changed ring only affects
+ * existing owners once the rebalancer has moved them. Without {@code character.sharding.enabled} there is a single
+ * unnamed shard, the one database, and everything here is a no-op.
+ */
+@Component
+public class ShardRouter {
+
+	private final CharacterDirectory directory;
+
+	private final ConsistentHashRing ring;
+
+	@Autowired
+	public ShardRouter(ObjectProvider<CharacterDirectory> directory, ObjectProvider<ConsistentHashRing> ring) {
+		this(directory.getIfAvailable(), ring.getIfAvailable());
+	}
+
+	ShardRouter(CharacterDirectory directory, ConsistentHashRing ring) {
+		this.directory = directory;
+		this.ring = ring;
+	}
+
+	public boolean isSharded() {
+		return ring != null;
+	}
+
+	/**
+	 * Every shard, or a single null entry standing for the one database when not sharded.
+	 */
+	public List<String> shards() {
+		return isSharded() ? ring.getShards() : Collections.singletonList(null);
+	}
+
+	public String shardForOwner(String owner) {
+		if (!isSharded()) {
+			return null;
+		}
+		String key = owner.toLowerCase();
+		String shard = directory.findShard(key);
+		return shard != null ? shard : directory.placeOwner(key, ring.shardFor(key));
+	}
+
+	/**
+	 * The shard of an owner that has been placed before, empty for owners that have no characters yet. Only
+	 * meaningful when sharded.
+	 */
+	public Optional<String> findShardForOwner(String owner) {
+		return Optional.ofNullable(directory.findShard(owner.toLowerCase()));
+	}
+
+	/**
+	 * The shard holding a character, empty if no shard has a character by that name. Only meaningful when
+	 * sharded.
+	 */
+	public Optional<String> findShardForCharacter(String characterName) {
+		String owner = directory.findOwner(characterName.toLowerCase());
+		return owner == null ? Optional.empty() : Optional.of(shardForOwner(owner));
+	}
+
+	/**
+	 * Runs the work once per shard, each run bound to its shard.
+	 */
+	public void onEachShard(Runnable work) {
+		for (String shard : shards()) {
+			ShardContext.run(shard, work);
+		}
+	}
+
+	public <T> T onShard(String shard, Supplier<T> work) {
+		return ShardContext.call(shard, work);
+	}
+
+	public CharacterDirectory getDirectory() {
+		return directory;
+	}
+
+	public ConsistentHashRing getRing() {
+		return ring;
+	}
+
+	/**
+	 * Drops what this node remembers about a character's owner after another node changed it.
+	 */
+	public void forget(String characterName) {
+		if (isSharded()) {
+			directory.forget(characterName.toLowerCase());
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${character.sharding.directory-cache-ttl-ms:60000}")
+	public void expireDirectoryCache() {
+		if (isSharded()) {
+			directory.clearCaches();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections to the shard bound in {@link ShardContext}, or to the directory database when none is.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+	public ShardRoutingDataSource(DataSource directory, Map<String, DataSource> shards) {
+		setDefaultTargetDataSource(directory);
+		setTargetDataSources(new HashMap<>(shards));
+		// An unknown shard id is a routing bug and must not silently end up in the directory
+		setLenientFallback(false);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return ShardContext.current();
+	}
+}
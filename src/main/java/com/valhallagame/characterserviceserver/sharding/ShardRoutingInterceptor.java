@@ -0,0 +1,256 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.CharacterDeletion;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Routes {@code CharacterRepository} calls to the shard of the owner or character they are about. Sits in front
+ * of the transaction advice so the connection comes from the right shard. Calls made while a shard is already
+ * bound, e.g. by the {@link ShardMover}, go straight through. Methods that are not listed here, such as the ones
+ * inherited from {@code JpaRepository}, follow one rule: reads ({@code find}, {@code get}, {@code read}, {@code
+ * count} and {@code exists}) run on every shard and their results are merged, anything else is refused since it
+ * would write past the directory.
+ */
+public class ShardRoutingInterceptor implements MethodInterceptor {
+
+	private final ShardRouter router;
+
+	private final ObjectFactory<ShardMover> mover;
+
+	public ShardRoutingInterceptor(ShardRouter router, ObjectFactory<ShardMover> mover) {
+		this.router = router;
+		this.mover = mover;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (ShardContext.isBound() || invocation.getMethod().getDeclaringClass() == Object.class) {
+			return invocation.proceed();
+		}
+
+		Object[] args = invocation.getArguments();
+		switch (invocation.getMethod().getName()) {
+		case "findByCharacterName":
+		case "updateSlots": {
+			Optional<String> shard = router.findShardForCharacter((String) args[0]);
+			return shard.isPresent() ? proceedOn(shard.get(), invocation) : Optional.empty();
+		}
+		case "findByOwnerUsername": {
+			Optional<String> shard = router.findShardForOwner((String) args[0]);
+			return shard.isPresent() ? proceedOn(shard.get(), invocation) : Collections.emptyList();
+		}
+		case "getSelectedCharacter": {
+			Optional<String> shard = router.findShardForOwner((String) args[0]);
+			return shard.isPresent() ? proceedOn(shard.get(), invocation) : Optional.empty();
+		}
+		case "setSelectedCharacter":
+		case "selectOwnedCharacter":
+			return proceedOn(router.shardForOwner((String) args[0]), invocation);
+		case "deleteAndReselect":
+			return deleteAndReselect(invocation, (String) args[0], (String) args[1]);
+		case "insertCharacter":
+			return insert(invocation, (Character) args[0]);
+		case "save":
+			return args[0] instanceof Character
+					? save(invocation, (Character) args[0])
+					: saveEach(invocation, (Iterable<?>) args[0]);
+		case "findByCharacterNameIn":
+			return findByCharacterNameIn(invocation, (Collection<?>) args[0]);
+		case "findAllCharacterNames":
+			return router.getDirectory().findAllNames();
+		default:
+			if (isRead(invocation.getMethod().getName())) {
+				return onEveryShard(invocation);
+			}
+			throw new UnsupportedOperationException("CharacterRepository." + invocation.getMethod().getName()
+					+ " writes past the shard directory");
+		}
+	}
+
+	/**
+	 * Keeps the name pending while the shard deletes the character, so a node dying in between leaves it to the
+	 * {@link DirectoryReconciler} rather than claimed for good.
+	 */
+	private Object deleteAndReselect(MethodInvocation invocation, String owner, String characterName)
+			throws Throwable {
+		Optional<String> shard = router.findShardForOwner(owner);
+		if (!shard.isPresent()) {
+			return new CharacterDeletion(false, null);
+		}
+		String key = characterName.toLowerCase();
+		router.getDirectory().markPending(key);
+		CharacterDeletion deletion;
+		try {
+			deletion = (CharacterDeletion) proceedOn(shard.get(), invocation);
+		} catch (Throwable e) {
+			router.getDirectory().confirm(key);
+			throw e;
+		}
+		if (deletion.isDeleted()) {
+			router.getDirectory().unregister(key);
+		} else {
+			router.getDirectory().confirm(key);
+		}
+		return deletion;
+	}
+
+	/**
+	 * Claims the name in the directory before writing to the shard, so two shards can never both accept it, and
+	 * gives it back when the shard rejects the character. The claim stays pending until the shard has the
+	 * character.
+	 */
+	private Object insert(MethodInvocation invocation, Character character) throws Throwable {
+		String characterName = character.getCharacterName().toLowerCase();
+		router.getDirectory().register(characterName, character.getOwnerUsername().toLowerCase());
+		Object inserted;
+		try {
+			inserted = proceedOn(router.shardForOwner(character.getOwnerUsername()), invocation);
+		} catch (Throwable e) {
+			router.getDirectory().unregister(characterName);
+			throw e;
+		}
+		router.getDirectory().confirm(characterName);
+		return inserted;
+	}
+
+	/**
+	 * Saves in place, unless the character was given to an owner on another shard, in which case it moves there.
+	 */
+	private Object save(MethodInvocation invocation, Character character) throws Throwable {
+		String characterName = character.getCharacterName().toLowerCase();
+		String owner = character.getOwnerUsername().toLowerCase();
+		String previousOwner = router.getDirectory().findOwner(characterName);
+		if (previousOwner == null) {
+			return insert(invocation, character);
+		}
+		if (previousOwner.equals(owner)) {
+			return proceedOn(router.shardForOwner(owner), invocation);
+		}
+
+		String from = router.shardForOwner(previousOwner);
+		String to = router.shardForOwner(owner);
+		if (from.equals(to)) {
+			router.getDirectory().markPending(characterName);
+			Object saved;
+			try {
+				saved = proceedOn(to, invocation);
+			} catch (Throwable e) {
+				router.getDirectory().confirm(characterName);
+				throw e;
+			}
+			router.getDirectory().changeOwner(characterName, owner);
+			return saved;
+		}
+		return mover.getObject().moveCharacter(character, from, to);
+	}
+
+	/**
+	 * Saves the characters one at a time, each routed like a single save.
+	 */
+	private Object saveEach(MethodInvocation invocation, Iterable<?> characters) throws Throwable {
+		List<Object> saved = new ArrayList<>();
+		for (Object character : characters) {
+			MethodInvocation single = ((ProxyMethodInvocation) invocation)
+					.invocableClone(Collections.singletonList(character));
+			Object result = save(single, (Character) character);
+			if (result instanceof Collection) {
+				saved.addAll((Collection<?>) result);
+			} else {
+				saved.add(result);
+			}
+		}
+		return saved;
+	}
+
+	private static boolean isRead(String methodName) {
+		return methodName.startsWith("find") || methodName.startsWith("get") || methodName.startsWith("read")
+				|| methodName.startsWith("count") || methodName.startsWith("exists");
+	}
+
+	/**
+	 * Runs a read on every shard in turn. Lists are concatenated, counts added up, existence checks or'ed and
+	 * otherwise the first shard with a result answers. Pages cannot be merged this way and are refused.
+	 */
+	private Object onEveryShard(MethodInvocation invocation) throws Throwable {
+		Class<?> returnType = invocation.getMethod().getReturnType();
+		List<Object> results = new ArrayList<>();
+		for (String shard : router.shards()) {
+			results.add(proceedOn(shard, ((ProxyMethodInvocation) invocation).invocableClone()));
+		}
+
+		// Object is a generic single result, like findOne's
+		if (returnType != Object.class && returnType.isAssignableFrom(List.class)) {
+			List<Object> merged = new ArrayList<>();
+			results.forEach(result -> ((Iterable<?>) result).forEach(merged::add));
+			return merged;
+		}
+		if (returnType == long.class || returnType == Long.class) {
+			return results.stream().mapToLong(result -> (Long) result).sum();
+		}
+		if (returnType == boolean.class || returnType == Boolean.class) {
+			return results.stream().anyMatch(Boolean.TRUE::equals);
+		}
+		if (returnType == Optional.class) {
+			return results.stream()
+					.map(result -> (Optional<?>) result)
+					.filter(Optional::isPresent)
+					.findFirst()
+					.orElse(Optional.empty());
+		}
+		if (Iterable.class.isAssignableFrom(returnType)) {
+			throw new UnsupportedOperationException("CharacterRepository." + invocation.getMethod().getName()
+					+ " returns a " + returnType.getSimpleName() + " that cannot be merged across shards");
+		}
+		return results.stream().filter(result -> result != null).findFirst().orElse(null);
+	}
+
+	private Object findByCharacterNameIn(MethodInvocation invocation, Collection<?> characterNames) throws Throwable {
+		Map<String, List<String>> namesByShard = new LinkedHashMap<>();
+		for (Object characterName : characterNames) {
+			router.findShardForCharacter(characterName.toString()).ifPresent(shard ->
+					namesByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(characterName.toString()));
+		}
+
+		List<Object> characters = new ArrayList<>();
+		for (Map.Entry<String, List<String>> entry : namesByShard.entrySet()) {
+			MethodInvocation perShard = ((ProxyMethodInvocation) invocation).invocableClone(entry.getValue());
+			characters.addAll((Collection<?>) proceedOn(entry.getKey(), perShard));
+		}
+		return characters;
+	}
+
+	static Object proceedOn(String shard, MethodInvocation invocation) throws Throwable {
+		try {
+			return ShardContext.call(shard, () -> {
+				try {
+					return invocation.proceed();
+				} catch (Throwable e) {
+					throw new ProceedFailure(e);
+				}
+			});
+		} catch (ProceedFailure e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Carries whatever the repository threw through the {@link java.util.function.Supplier} unchanged.
+	 */
+	private static class ProceedFailure extends RuntimeException {
+		private ProceedFailure(Throwable cause) {
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.valhallagame.characterserviceserver.template;
+
+import com.valhallagame.characterserviceserver.model.AllowedClasses;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.currencyserviceclient.model.CurrencyType;
+import com.valhallagame.traitserviceclient.message.AttributeType;
+import com.valhallagame.traitserviceclient.message.TraitType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled starter kit of one class. Instances are immutable and shared between all creations, so nothing
+ * here is rebuilt per character.
+ */
+@Getter
+@AllArgsConstructor
+public final class ClassTemplate {
+	private final AllowedClasses characterClass;
+
+	private final Map<ItemSlot, String> gear;
+
+	private final List<TraitType> unlocks;
+
+	/**
+	 * Unlocks that are attempted but do not fail the creation, used by the debug class.
+	 */
+	private final List<TraitType> optionalUnlocks;
+
+	private final List<TraitType> purchases;
+
+	private final List<SkilledTrait> skills;
+
+	private final Map<CurrencyType, Integer> currencies;
+
+	private final List<String> recipes;
+
+	@Getter
+	@AllArgsConstructor
+	public static final class SkilledTrait {
+		private final TraitType trait;
+
+		private final AttributeType attribute;
+
+		private final int position;
+	}
+}
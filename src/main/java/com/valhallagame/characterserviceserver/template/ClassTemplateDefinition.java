@@ -0,0 +1,54 @@
+package com.valhallagame.characterserviceserver.template;
+
+import com.valhallagame.currencyserviceclient.model.CurrencyType;
+import com.valhallagame.traitserviceclient.message.AttributeType;
+import com.valhallagame.traitserviceclient.message.TraitType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raw shape of the class template file. The {@code defaults} entry is merged into every class before it is
+ * compiled into a {@link ClassTemplate}.
+ */
+@Data
+@NoArgsConstructor
+public class ClassTemplateDefinition {
+	private Kit defaults = new Kit();
+
+	private Map<String, Kit> classes = new LinkedHashMap<>();
+
+	@Data
+	@NoArgsConstructor
+	public static class Kit {
+		private Map<String, String> gear = new LinkedHashMap<>();
+
+		private List<TraitType> unlock = new ArrayList<>();
+
+		private List<TraitType> optionalUnlock = new ArrayList<>();
+
+		private boolean optionalUnlockAll;
+
+		private List<TraitType> purchase = new ArrayList<>();
+
+		private List<Skill> skill = new ArrayList<>();
+
+		private Map<CurrencyType, Integer> currency = new LinkedHashMap<>();
+
+		private List<String> recipes = new ArrayList<>();
+	}
+
+	@Data
+	@NoArgsConstructor
+	public static class Skill {
+		private TraitType trait;
+
+		private AttributeType attribute;
+
+		private int position;
+	}
+}
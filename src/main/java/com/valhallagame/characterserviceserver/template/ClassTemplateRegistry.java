@@ -0,0 +1,161 @@
+package com.valhallagame.characterserviceserver.template;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.valhallagame.characterserviceserver.model.AllowedClasses;
+import com.valhallagame.characterserviceserver.model.ItemSlot;
+import com.valhallagame.currencyserviceclient.model.CurrencyType;
+import com.valhallagame.traitserviceclient.message.TraitType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the compiled {@link ClassTemplate} of every {@link AllowedClasses}. The table is loaded from
+ * {@code character.templates.location} at startup and swapped atomically whenever the resource changes, so
+ * creations in flight keep using the table they started with.
+ */
+@Component
+public class ClassTemplateRegistry {
+	private static final Logger logger = LoggerFactory.getLogger(ClassTemplateRegistry.class);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Resource resource;
+
+	private volatile Map<AllowedClasses, ClassTemplate> templates;
+
+	private volatile long lastModified;
+
+	@Autowired
+	public ClassTemplateRegistry(ResourceLoader resourceLoader,
+								 @Value("${character.templates.location:classpath:class-templates.json}") String location) {
+		this.resource = resourceLoader.getResource(location);
+	}
+
+	@PostConstruct
+	public void load() throws IOException {
+		long modified = lastModified();
+		templates = compile(read());
+		lastModified = modified;
+		logger.info("Loaded class templates for {} from {}", templates.keySet(), resource.getDescription());
+	}
+
+	@Scheduled(fixedDelayString = "${character.templates.reload-interval-ms:30000}")
+	public void reloadIfChanged() {
+		long modified = lastModified();
+		if (modified == lastModified) {
+			return;
+		}
+		try {
+			load();
+		} catch (IOException | IllegalArgumentException e) {
+			// Keep serving the previous table, a broken file must not stop character creation.
+			lastModified = modified;
+			logger.error("Failed to reload class templates from " + resource.getDescription(), e);
+		}
+	}
+
+	public ClassTemplate get(AllowedClasses characterClass) {
+		return templates.get(characterClass);
+	}
+
+	/**
+	 * Every item the templates hand out as gear.
+	 */
+	public Set<String> items() {
+		return templates.values().stream()
+				.flatMap(template -> template.getGear().values().stream())
+				.collect(Collectors.toSet());
+	}
+
+	private long lastModified() {
+		try {
+			return resource.lastModified();
+		} catch (IOException e) {
+			return lastModified;
+		}
+	}
+
+	private ClassTemplateDefinition read() throws IOException {
+		try (InputStream in = resource.getInputStream()) {
+			return objectMapper.readValue(in, ClassTemplateDefinition.class);
+		}
+	}
+
+	static Map<AllowedClasses, ClassTemplate> compile(ClassTemplateDefinition definition) {
+		Map<AllowedClasses, ClassTemplate> compiled = new EnumMap<>(AllowedClasses.class);
+		for (Map.Entry<String, ClassTemplateDefinition.Kit> entry : definition.getClasses().entrySet()) {
+			AllowedClasses characterClass = AllowedClasses.fromString(entry.getKey());
+			if (characterClass == null) {
+				throw new IllegalArgumentException("Unknown class in templates: " + entry.getKey());
+			}
+			compiled.put(characterClass, compile(characterClass, definition.getDefaults(), entry.getValue()));
+		}
+
+		for (AllowedClasses characterClass : AllowedClasses.values()) {
+			if (!compiled.containsKey(characterClass)) {
+				throw new IllegalArgumentException("No template for class " + characterClass);
+			}
+		}
+		return Collections.unmodifiableMap(compiled);
+	}
+
+	private static ClassTemplate compile(AllowedClasses characterClass, ClassTemplateDefinition.Kit defaults,
+										 ClassTemplateDefinition.Kit kit) {
+		Map<String, String> gearByName = new LinkedHashMap<>(defaults.getGear());
+		gearByName.putAll(kit.getGear());
+		Map<ItemSlot, String> gear = new EnumMap<>(ItemSlot.class);
+		gearByName.forEach((slotName, item) -> {
+			ItemSlot slot = ItemSlot.fromString(slotName);
+			if (slot == null) {
+				throw new IllegalArgumentException(slotName + " is not a slot, in template for " + characterClass);
+			}
+			gear.put(slot, item);
+		});
+
+		List<TraitType> unlocks = merge(defaults.getUnlock(), kit.getUnlock());
+
+		List<TraitType> optionalUnlocks;
+		if (defaults.isOptionalUnlockAll() || kit.isOptionalUnlockAll()) {
+			optionalUnlocks = Arrays.stream(TraitType.values())
+					.filter(trait -> !unlocks.contains(trait))
+					.collect(Collectors.toList());
+		} else {
+			optionalUnlocks = merge(defaults.getOptionalUnlock(), kit.getOptionalUnlock());
+		}
+
+		List<ClassTemplate.SkilledTrait> skills = merge(defaults.getSkill(), kit.getSkill()).stream()
+				.map(skill -> new ClassTemplate.SkilledTrait(skill.getTrait(), skill.getAttribute(), skill.getPosition()))
+				.collect(Collectors.toList());
+
+		Map<CurrencyType, Integer> currencies = new EnumMap<>(CurrencyType.class);
+		currencies.putAll(defaults.getCurrency());
+		currencies.putAll(kit.getCurrency());
+
+		return new ClassTemplate(characterClass,
+				Collections.unmodifiableMap(gear),
+				Collections.unmodifiableList(unlocks),
+				Collections.unmodifiableList(optionalUnlocks),
+				Collections.unmodifiableList(merge(defaults.getPurchase(), kit.getPurchase())),
+				Collections.unmodifiableList(skills),
+				Collections.unmodifiableMap(currencies),
+				Collections.unmodifiableList(merge(defaults.getRecipes(), kit.getRecipes())));
+	}
+
+	private static <T> List<T> merge(List<T> defaults, List<T> additions) {
+		List<T> merged = new ArrayList<>(defaults);
+		additions.stream().filter(value -> !merged.contains(value)).forEach(merged::add);
+		return merged;
+	}
+}
@@ -0,0 +1,9 @@
+-- Only checks rows written from now on, so it takes its lock for a moment without reading the table
+ALTER TABLE character ADD CONSTRAINT head_item_id_not_null CHECK (head_item_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT beard_item_id_not_null CHECK (beard_item_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT chest_item_id_not_null CHECK (chest_item_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT hands_item_id_not_null CHECK (hands_item_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT legs_item_id_not_null CHECK (legs_item_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT feet_item_id_not_null CHECK (feet_item_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT mainhand_armament_id_not_null CHECK (mainhand_armament_id IS NOT NULL) NOT VALID;
+ALTER TABLE character ADD CONSTRAINT off_hand_armament_id_not_null CHECK (off_hand_armament_id IS NOT NULL) NOT VALID;
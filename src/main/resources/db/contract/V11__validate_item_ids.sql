@@ -0,0 +1,9 @@
+-- Reads the whole table, but without blocking writes. Fails if ItemIdBackfill left a row behind
+ALTER TABLE character VALIDATE CONSTRAINT head_item_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT beard_item_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT chest_item_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT hands_item_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT legs_item_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT feet_item_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT mainhand_armament_id_not_null;
+ALTER TABLE character VALIDATE CONSTRAINT off_hand_armament_id_not_null;
@@ -0,0 +1,31 @@
+-- Postgres 12 and later take the validated checks as proof and set NOT NULL without reading the table again
+ALTER TABLE character ALTER COLUMN head_item_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN beard_item_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN chest_item_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN hands_item_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN legs_item_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN feet_item_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN mainhand_armament_id SET NOT NULL;
+ALTER TABLE character ALTER COLUMN off_hand_armament_id SET NOT NULL;
+
+ALTER TABLE character DROP CONSTRAINT head_item_id_not_null;
+ALTER TABLE character DROP CONSTRAINT beard_item_id_not_null;
+ALTER TABLE character DROP CONSTRAINT chest_item_id_not_null;
+ALTER TABLE character DROP CONSTRAINT hands_item_id_not_null;
+ALTER TABLE character DROP CONSTRAINT legs_item_id_not_null;
+ALTER TABLE character DROP CONSTRAINT feet_item_id_not_null;
+ALTER TABLE character DROP CONSTRAINT mainhand_armament_id_not_null;
+ALTER TABLE character DROP CONSTRAINT off_hand_armament_id_not_null;
+
+DROP TRIGGER clear_stale_item_ids ON character;
+DROP FUNCTION clear_stale_item_ids();
+
+-- Dropping a column only hides it, the names leave the stored rows as they are written again
+ALTER TABLE character DROP COLUMN head_item;
+ALTER TABLE character DROP COLUMN beard_item;
+ALTER TABLE character DROP COLUMN chest_item;
+ALTER TABLE character DROP COLUMN hands_item;
+ALTER TABLE character DROP COLUMN legs_item;
+ALTER TABLE character DROP COLUMN feet_item;
+ALTER TABLE character DROP COLUMN mainhand_armament;
+ALTER TABLE character DROP COLUMN off_hand_armament;
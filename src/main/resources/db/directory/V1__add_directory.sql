@@ -0,0 +1,19 @@
+-- Which shard holds an owner's characters and selection, and who owns every character name across all shards
+CREATE TABLE owner_shard (
+    owner TEXT PRIMARY KEY,
+    shard TEXT NOT NULL
+);
+
+CREATE TABLE character_directory (
+    character_name TEXT PRIMARY KEY,
+    owner TEXT NOT NULL
+);
+
+CREATE INDEX character_directory_owner_idx ON character_directory (owner);
+
+-- Item ids are stored in the character rows of every shard and have to mean the same everywhere. A database that
+-- was the single database before already has this table and keeps its ids.
+CREATE TABLE IF NOT EXISTS item (
+    id SMALLSERIAL PRIMARY KEY,
+    name TEXT NOT NULL UNIQUE
+);
@@ -0,0 +1,5 @@
+-- Set while a name is being claimed or released and the shard write is not known to be done yet. A node that dies
+-- in between leaves it set, and the reconciler settles the row against the shard once it is old enough.
+ALTER TABLE character_directory ADD COLUMN pending_since TIMESTAMP WITH TIME ZONE;
+
+CREATE INDEX character_directory_pending_idx ON character_directory (pending_since) WHERE pending_since IS NOT NULL;
@@ -0,0 +1,5 @@
+-- Serves findByOwnerUsername as well as the (owner, character_name) join from selected_character
+CREATE INDEX character_owner_character_name_idx ON character (owner, character_name);
+
+-- Lets the ON DELETE CASCADE from character find the selection without a sequential scan
+CREATE INDEX selected_character_character_name_idx ON selected_character (character_name);
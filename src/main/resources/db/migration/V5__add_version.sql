@@ -0,0 +1 @@
+ALTER TABLE character ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
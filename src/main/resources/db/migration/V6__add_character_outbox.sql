@@ -0,0 +1,7 @@
+-- Character events waiting to be published, written in the same transaction as the change they describe
+CREATE TABLE character_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    routing_key TEXT NOT NULL,
+    payload TEXT NOT NULL,
+    created TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,9 @@
+-- Local projection of the traits, currencies and recipes other services hold for a character. There is no
+-- foreign key to character since events for a new character can arrive before its row is committed.
+CREATE TABLE character_profile_entry (
+    character_name TEXT NOT NULL,
+    kind TEXT NOT NULL,
+    entry_key TEXT NOT NULL,
+    value BIGINT,
+    PRIMARY KEY (character_name, kind, entry_key)
+);
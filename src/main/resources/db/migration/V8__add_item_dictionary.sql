@@ -0,0 +1,25 @@
+-- Item names stored once, referenced from character by small integer ids
+CREATE TABLE item (
+    id SMALLSERIAL PRIMARY KEY,
+    name TEXT NOT NULL UNIQUE
+);
+
+-- Nullable and without defaults so adding them does not rewrite the table; ItemIdBackfill fills existing rows
+ALTER TABLE character ADD COLUMN head_item_id SMALLINT;
+ALTER TABLE character ADD COLUMN beard_item_id SMALLINT;
+ALTER TABLE character ADD COLUMN chest_item_id SMALLINT;
+ALTER TABLE character ADD COLUMN hands_item_id SMALLINT;
+ALTER TABLE character ADD COLUMN legs_item_id SMALLINT;
+ALTER TABLE character ADD COLUMN feet_item_id SMALLINT;
+ALTER TABLE character ADD COLUMN mainhand_armament_id SMALLINT;
+ALTER TABLE character ADD COLUMN off_hand_armament_id SMALLINT;
+
+-- Empty meta data is stored as NULL from now on, which takes no space in the row
+ALTER TABLE character ALTER COLUMN head_item_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN beard_item_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN chest_item_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN hands_item_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN legs_item_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN feet_item_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN mainhand_armament_meta_data DROP DEFAULT;
+ALTER TABLE character ALTER COLUMN off_hand_armament_meta_data DROP DEFAULT;
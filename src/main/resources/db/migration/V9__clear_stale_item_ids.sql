@@ -0,0 +1,34 @@
+-- Nodes older than V8 change the item names without the ids next to them. Clearing such an id leaves the row to
+-- ItemIdBackfill instead of pointing at the wrong item. New nodes always change both, so this never fires for them.
+CREATE FUNCTION clear_stale_item_ids() RETURNS trigger AS $$
+BEGIN
+    IF NEW.head_item IS DISTINCT FROM OLD.head_item AND NEW.head_item_id IS NOT DISTINCT FROM OLD.head_item_id THEN
+        NEW.head_item_id := NULL;
+    END IF;
+    IF NEW.beard_item IS DISTINCT FROM OLD.beard_item AND NEW.beard_item_id IS NOT DISTINCT FROM OLD.beard_item_id THEN
+        NEW.beard_item_id := NULL;
+    END IF;
+    IF NEW.chest_item IS DISTINCT FROM OLD.chest_item AND NEW.chest_item_id IS NOT DISTINCT FROM OLD.chest_item_id THEN
+        NEW.chest_item_id := NULL;
+    END IF;
+    IF NEW.hands_item IS DISTINCT FROM OLD.hands_item AND NEW.hands_item_id IS NOT DISTINCT FROM OLD.hands_item_id THEN
+        NEW.hands_item_id := NULL;
+    END IF;
+    IF NEW.legs_item IS DISTINCT FROM OLD.legs_item AND NEW.legs_item_id IS NOT DISTINCT FROM OLD.legs_item_id THEN
+        NEW.legs_item_id := NULL;
+    END IF;
+    IF NEW.feet_item IS DISTINCT FROM OLD.feet_item AND NEW.feet_item_id IS NOT DISTINCT FROM OLD.feet_item_id THEN
+        NEW.feet_item_id := NULL;
+    END IF;
+    IF NEW.mainhand_armament IS DISTINCT FROM OLD.mainhand_armament AND NEW.mainhand_armament_id IS NOT DISTINCT FROM OLD.mainhand_armament_id THEN
+        NEW.mainhand_armament_id := NULL;
+    END IF;
+    IF NEW.off_hand_armament IS DISTINCT FROM OLD.off_hand_armament AND NEW.off_hand_armament_id IS NOT DISTINCT FROM OLD.off_hand_armament_id THEN
+        NEW.off_hand_armament_id := NULL;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER clear_stale_item_ids BEFORE UPDATE ON character
+    FOR EACH ROW EXECUTE PROCEDURE clear_stale_item_ids();
@@ -0,0 +1,156 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import com.valhallagame.characterserviceserver.metrics.LatencyRegistry;
+import com.valhallagame.characterserviceserver.service.CharacterCache;
+import com.valhallagame.common.rabbitmq.NotificationMessage;
+import com.valhallagame.common.rabbitmq.RabbitMQRouting;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CharacterEventPublisherTest {
+
+	private static final int BATCH_SIZE = 10;
+
+	private static final String[] ROUTING_KEYS = { RabbitMQRouting.Character.SELECT.name(),
+			RabbitMQRouting.Character.DELETE.name(), CharacterCache.INVALIDATE_ROUTING_KEY };
+
+	private static EmbeddedBroker broker;
+
+	private static CachingConnectionFactory connectionFactory;
+
+	private RabbitAdmin admin;
+
+	private RabbitTemplate rabbitTemplate;
+
+	private Queue queue;
+
+	private CharacterEventPublisher publisher;
+
+	@BeforeClass
+	public static void startBroker() throws Exception {
+		broker = new EmbeddedBroker();
+		connectionFactory = new CachingConnectionFactory("localhost", broker.getPort());
+		connectionFactory.setPublisherConfirms(true);
+	}
+
+	@AfterClass
+	public static void stopBroker() {
+		connectionFactory.destroy();
+		broker.close();
+	}
+
+	@Before
+	public void setUp() {
+		admin = new RabbitAdmin(connectionFactory);
+		DirectExchange exchange = new DirectExchange(RabbitMQRouting.Exchange.CHARACTER.name());
+		admin.declareExchange(exchange);
+		queue = admin.declareQueue();
+		for (String routingKey : ROUTING_KEYS) {
+			admin.declareBinding(BindingBuilder.bind(queue).to(exchange).with(routingKey));
+		}
+
+		rabbitTemplate = new RabbitTemplate(connectionFactory);
+		rabbitTemplate.setMessageConverter(new Jackson2JsonMessageConverter());
+		publisher = new CharacterEventPublisher(rabbitTemplate, new LatencyRegistry(), 1000, BATCH_SIZE, 50, 5000);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		publisher.stop();
+		admin.deleteQueue(queue.getName());
+	}
+
+	@Test
+	public void publishesInQueueOrderAcrossRoutingKeys() throws InterruptedException {
+		publisher.start();
+		for (int i = 0; i < 100; i++) {
+			publisher.publish(ROUTING_KEYS[i % ROUTING_KEYS.length], event(i));
+		}
+
+		assertEquals(sequence(100), receive(100));
+		awaitConfirmed(100);
+	}
+
+	@Test
+	public void waitsForConfirmsOncePerBatch() throws InterruptedException {
+		// Queued before the publisher thread runs, so every batch is full
+		for (int i = 0; i < 5 * BATCH_SIZE; i++) {
+			publisher.publish(ROUTING_KEYS[i % ROUTING_KEYS.length], event(i));
+		}
+		publisher.start();
+
+		assertEquals(sequence(5 * BATCH_SIZE), receive(5 * BATCH_SIZE));
+		awaitConfirmed(5 * BATCH_SIZE);
+		assertEquals(5L, publisher.getStats().get("batches"));
+		assertEquals(0L, publisher.getStats().get("publishedByCaller"));
+	}
+
+	@Test
+	public void publishesConfirmedEventsInOrderOnTheCallingThread() {
+		publisher.start();
+		List<CharacterEventPublisher.Event> events = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			events.add(new CharacterEventPublisher.Event(ROUTING_KEYS[i % ROUTING_KEYS.length], event(i)));
+		}
+
+		assertTrue(publisher.publishConfirmed(events));
+		assertEquals(sequence(20), receive(20));
+		assertEquals(20L, publisher.getStats().get("confirmed"));
+		assertEquals(0L, publisher.getStats().get("batches"));
+	}
+
+	private static NotificationMessage event(int sequence) {
+		NotificationMessage message = new NotificationMessage("user" + sequence, "Test event");
+		message.addData("sequence", sequence);
+		return message;
+	}
+
+	private static List<Integer> sequence(int count) {
+		List<Integer> sequence = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			sequence.add(i);
+		}
+		return sequence;
+	}
+
+	private List<Integer> receive(int count) {
+		List<Integer> received = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			NotificationMessage message = (NotificationMessage) rabbitTemplate.receiveAndConvert(queue.getName(),
+					TimeUnit.SECONDS.toMillis(5));
+			assertNotNull("Only received " + received, message);
+			received.add((Integer) message.getData().get("sequence"));
+		}
+		return received;
+	}
+
+	private void awaitConfirmed(long count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		Map<String, Object> stats = publisher.getStats();
+		while (!Long.valueOf(count).equals(stats.get("confirmed")) && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			stats = publisher.getStats();
+		}
+		assertEquals(stats.toString(), count, stats.get("confirmed"));
+		assertEquals(stats.toString(), 0L, stats.get("dropped"));
+	}
+}
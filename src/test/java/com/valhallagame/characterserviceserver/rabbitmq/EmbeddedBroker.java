@@ -0,0 +1,46 @@
+package com.valhallagame.characterserviceserver.rabbitmq;
+
+import org.apache.qpid.server.Broker;
+import org.apache.qpid.server.BrokerOptions;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+
+/**
+ * In-JVM AMQP 0-9-1 broker with an in-memory virtual host, good enough for Spring AMQP and publisher confirms.
+ * Used by the tests and the load test.
+ */
+public class EmbeddedBroker implements AutoCloseable {
+
+	private final Broker broker = new Broker();
+
+	private final int port;
+
+	public EmbeddedBroker() throws Exception {
+		this.port = freePort();
+		BrokerOptions options = new BrokerOptions();
+		options.setConfigurationStoreType("Memory");
+		options.setInitialConfigurationLocation(
+				EmbeddedBroker.class.getClassLoader().getResource("embedded-broker.json").toExternalForm());
+		options.setConfigProperty("qpid.amqp_port", Integer.toString(port));
+		options.setConfigProperty("qpid.work_dir", Files.createTempDirectory("qpid").toString());
+		options.setStartupLoggedToSystemOut(false);
+		broker.startup(options);
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	@Override
+	public void close() {
+		broker.shutdown();
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
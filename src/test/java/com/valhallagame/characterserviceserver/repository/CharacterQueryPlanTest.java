@@ -0,0 +1,108 @@
+package com.valhallagame.characterserviceserver.repository;
+
+import com.opentable.db.postgres.junit.EmbeddedPostgresRules;
+import com.opentable.db.postgres.junit.SingleInstancePostgresRule;
+import org.flywaydb.core.Flyway;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the plans of the owner and selection queries against the real schema, so a changed query or a dropped
+ * index shows up as a sequential scan here rather than as slow logins once the table is large.
+ */
+public class CharacterQueryPlanTest {
+
+	private static final String OWNER_INDEX = "character_owner_character_name_idx";
+
+	// Not character_outbox or character_profile_entry
+	private static final Pattern SEQ_SCAN_ON_CHARACTER = Pattern.compile("Seq Scan on character\\b");
+
+	private static final String FIND_BY_OWNER = "SELECT * FROM character WHERE owner = :owner";
+
+	@ClassRule
+	public static final SingleInstancePostgresRule postgres = EmbeddedPostgresRules.singleInstance();
+
+	private static NamedParameterJdbcTemplate jdbcTemplate;
+
+	@BeforeClass
+	public static void createCharacters() {
+		DataSource dataSource = postgres.getEmbeddedPostgres().getPostgresDatabase();
+		Flyway flyway = new Flyway();
+		flyway.setDataSource(dataSource);
+		flyway.setLocations("classpath:db/migration");
+		flyway.migrate();
+
+		// Four characters per owner, every owner with a selection, like in production
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.update("INSERT INTO item (name) VALUES ('NONE')");
+		template.update("INSERT INTO character (owner, character_name, display_character_name, chest_item,"
+				+ " mainhand_armament, off_hand_armament, head_item_id, beard_item_id, chest_item_id, hands_item_id,"
+				+ " legs_item_id, feet_item_id, mainhand_armament_id, off_hand_armament_id)"
+				+ " SELECT 'owner' || (i / 4), 'character' || i, 'Character' || i, 'NONE', 'NONE', 'NONE',"
+				+ " 1, 1, 1, 1, 1, 1, 1, 1 FROM generate_series(0, 39999) i");
+		template.update("INSERT INTO selected_character (owner, character_name)"
+				+ " SELECT owner, min(character_name) FROM character GROUP BY owner");
+		template.execute("ANALYZE character");
+		template.execute("ANALYZE selected_character");
+		jdbcTemplate = new NamedParameterJdbcTemplate(template);
+	}
+
+	@Test
+	public void findByOwnerUsesOwnerIndex() {
+		String plan = explain(FIND_BY_OWNER, new MapSqlParameterSource("owner", "owner42"));
+		assertTrue(plan, plan.contains(OWNER_INDEX));
+		assertNoSeqScanOnCharacter(plan);
+	}
+
+	@Test
+	public void getSelectedCharacterUsesOwnerIndex() throws NoSuchMethodException {
+		String query = CharacterRepository.class.getMethod("getSelectedCharacter", String.class)
+				.getAnnotation(Query.class).value();
+		String plan = explain(query, new MapSqlParameterSource("owner", "owner42"));
+		assertTrue(plan, plan.contains(OWNER_INDEX));
+		assertNoSeqScanOnCharacter(plan);
+	}
+
+	@Test
+	public void selectOwnedCharacterUsesIndexes() {
+		String plan = explain(CharacterRepositoryImpl.SELECT_OWNED, new MapSqlParameterSource()
+				.addValue("owner", "owner42")
+				.addValue("character_name", "character169"));
+		assertNoSeqScanOnCharacter(plan);
+		assertFalse(plan, plan.contains("Seq Scan on selected_character"));
+	}
+
+	@Test
+	public void deleteAndReselectUsesIndexes() {
+		String plan = explain(CharacterRepositoryImpl.DELETE_AND_RESELECT, new MapSqlParameterSource()
+				.addValue("owner", "owner42")
+				.addValue("character_name", "character169"));
+		assertTrue(plan, plan.contains(OWNER_INDEX));
+		assertNoSeqScanOnCharacter(plan);
+		assertFalse(plan, plan.contains("Seq Scan on selected_character"));
+	}
+
+	/**
+	 * EXPLAIN only plans the statement, so the writing ones leave the data alone.
+	 */
+	private static String explain(String sql, MapSqlParameterSource parameters) {
+		List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters, String.class);
+		return String.join("\n", lines);
+	}
+
+	private static void assertNoSeqScanOnCharacter(String plan) {
+		assertFalse(plan, SEQ_SCAN_ON_CHARACTER.matcher(plan).find());
+	}
+}
@@ -0,0 +1,224 @@
+package com.valhallagame.characterserviceserver.sharding;
+
+import com.opentable.db.postgres.junit.EmbeddedPostgresRules;
+import com.opentable.db.postgres.junit.SingleInstancePostgresRule;
+import com.valhallagame.characterserviceserver.model.Character;
+import com.valhallagame.characterserviceserver.model.CharacterDeletion;
+import com.valhallagame.characterserviceserver.repository.CharacterRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the routing against a directory and two shards, each its own embedded Postgres. The repository behind the
+ * interceptor is a mock that writes through the routing data source, so what ends up where is decided by the
+ * interceptor and the directory alone.
+ */
+public class ShardRoutingInterceptorTest {
+
+	private static final List<String> SHARDS = Arrays.asList("a", "b");
+
+	private static final String INSERT_CHARACTER = "INSERT INTO character (owner, character_name,"
+			+ " display_character_name, chest_item, mainhand_armament, off_hand_armament, head_item_id, beard_item_id,"
+			+ " chest_item_id, hands_item_id, legs_item_id, feet_item_id, mainhand_armament_id, off_hand_armament_id)"
+			+ " VALUES (?, ?, ?, 'NONE', 'NONE', 'NONE', 1, 1, 1, 1, 1, 1, 1, 1)";
+
+	@ClassRule
+	public static final SingleInstancePostgresRule directoryDatabase = EmbeddedPostgresRules.singleInstance();
+
+	@ClassRule
+	public static final SingleInstancePostgresRule shardA = EmbeddedPostgresRules.singleInstance();
+
+	@ClassRule
+	public static final SingleInstancePostgresRule shardB = EmbeddedPostgresRules.singleInstance();
+
+	private static JdbcTemplate jdbcTemplate;
+
+	private CharacterDirectory directory;
+
+	private ShardRouter router;
+
+	private CharacterRepository target;
+
+	private CharacterRepository repository;
+
+	@BeforeClass
+	public static void createDatabases() {
+		migrate(directoryDatabase.getEmbeddedPostgres().getPostgresDatabase(), "classpath:db/directory");
+		Map<String, DataSource> shards = new LinkedHashMap<>();
+		shards.put("a", shardA.getEmbeddedPostgres().getPostgresDatabase());
+		shards.put("b", shardB.getEmbeddedPostgres().getPostgresDatabase());
+		for (DataSource shard : shards.values()) {
+			migrate(shard, "classpath:db/migration");
+			new JdbcTemplate(shard).update("INSERT INTO item (name) VALUES ('NONE')");
+		}
+
+		ShardRoutingDataSource routing = new ShardRoutingDataSource(
+				directoryDatabase.getEmbeddedPostgres().getPostgresDatabase(), shards);
+		routing.afterPropertiesSet();
+		jdbcTemplate = new JdbcTemplate(routing);
+	}
+
+	@Before
+	public void setUp() {
+		ShardContext.run(null, () -> jdbcTemplate.update("TRUNCATE owner_shard, character_directory"));
+		for (String shard : SHARDS) {
+			ShardContext.run(shard, () -> jdbcTemplate.update("TRUNCATE character CASCADE"));
+		}
+
+		directory = new CharacterDirectory(jdbcTemplate);
+		router = new ShardRouter(directory, new ConsistentHashRing(SHARDS, 16));
+		target = mock(CharacterRepository.class);
+		when(target.insertCharacter(any(Character.class))).thenAnswer(invocation -> {
+			Character character = invocation.getArgumentAt(0, Character.class);
+			jdbcTemplate.update(INSERT_CHARACTER, character.getOwnerUsername(), character.getCharacterName(),
+					character.getDisplayCharacterName());
+			return character;
+		});
+		when(target.deleteAndReselect(anyString(), anyString())).thenAnswer(invocation -> new CharacterDeletion(
+				jdbcTemplate.update("DELETE FROM character WHERE owner = ? AND character_name = ?",
+						invocation.getArgumentAt(0, String.class), invocation.getArgumentAt(1, String.class)) == 1,
+				null));
+		when(target.count()).thenAnswer(invocation ->
+				jdbcTemplate.queryForObject("SELECT count(*) FROM character", Long.class));
+
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.addInterface(CharacterRepository.class);
+		proxyFactory.addAdvice(new ShardRoutingInterceptor(router, () -> null));
+		repository = (CharacterRepository) proxyFactory.getProxy();
+	}
+
+	@Test
+	public void insertsOnTheOwnersShardAndConfirmsTheName() {
+		repository.insertCharacter(character("alice", "aslaug"));
+
+		String shard = router.shardForOwner("alice");
+		assertEquals(1, countOn(shard, "aslaug"));
+		assertEquals(0, countOn(otherShard(shard), "aslaug"));
+		assertEquals("alice", directory.findOwner("aslaug"));
+		assertFalse(isPending("aslaug"));
+	}
+
+	@Test
+	public void rejectedInsertGivesTheNameBack() {
+		doThrow(new DataIntegrityViolationException("test")).when(target).insertCharacter(any(Character.class));
+
+		try {
+			repository.insertCharacter(character("alice", "aslaug"));
+		} catch (DataIntegrityViolationException expected) {
+			// The shard refused it
+		}
+
+		directory.clearCaches();
+		assertNull(directory.findOwner("aslaug"));
+	}
+
+	@Test
+	public void deleteReleasesTheName() {
+		repository.insertCharacter(character("alice", "aslaug"));
+
+		assertTrue(repository.deleteAndReselect("alice", "aslaug").isDeleted());
+
+		directory.clearCaches();
+		assertNull(directory.findOwner("aslaug"));
+		assertEquals(0, countOn(router.shardForOwner("alice"), "aslaug"));
+	}
+
+	@Test
+	public void reconcilerSettlesWhatADeadNodeLeftPending() {
+		// Claimed, but the node died before the shard insert
+		directory.register("orphan", "alice");
+		router.shardForOwner("alice");
+		// Inserted, but the node died before confirming
+		repository.insertCharacter(character("bob", "bjorn"));
+		directory.markPending("bjorn");
+		ShardContext.run(null, () -> jdbcTemplate.update(
+				"UPDATE character_directory SET pending_since = now() - interval '1 hour'"));
+
+		new DirectoryReconciler(router, jdbcTemplate, 60000).reconcile();
+
+		directory.clearCaches();
+		assertNull(directory.findOwner("orphan"));
+		assertEquals("bob", directory.findOwner("bjorn"));
+		assertFalse(isPending("bjorn"));
+	}
+
+	@Test
+	public void reconcilerLeavesRecentClaimsAlone() {
+		directory.register("aslaug", "alice");
+
+		new DirectoryReconciler(router, jdbcTemplate, 60000).reconcile();
+
+		directory.clearCaches();
+		assertEquals("alice", directory.findOwner("aslaug"));
+		assertTrue(isPending("aslaug"));
+	}
+
+	@Test
+	public void unlistedReadsRunOnEveryShard() {
+		for (int i = 0; i < 20; i++) {
+			repository.insertCharacter(character("owner" + i, "character" + i));
+		}
+		long onA = ShardContext.call("a", () -> jdbcTemplate.queryForObject("SELECT count(*) FROM character",
+				Long.class));
+		assertTrue("All owners hashed to b", onA > 0 && onA < 20);
+
+		assertEquals(20L, repository.count());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void unlistedWritesAreRefused() {
+		repository.deleteAll();
+	}
+
+	private static void migrate(DataSource dataSource, String location) {
+		Flyway flyway = new Flyway();
+		flyway.setDataSource(dataSource);
+		flyway.setLocations(location);
+		flyway.migrate();
+	}
+
+	private static Character character(String owner, String characterName) {
+		Character character = new Character();
+		character.setOwnerUsername(owner);
+		character.setCharacterName(characterName);
+		character.setDisplayCharacterName(characterName);
+		return character;
+	}
+
+	private static String otherShard(String shard) {
+		return "a".equals(shard) ? "b" : "a";
+	}
+
+	private static int countOn(String shard, String characterName) {
+		return ShardContext.call(shard, () -> jdbcTemplate.queryForObject(
+				"SELECT count(*) FROM character WHERE character_name = ?", Integer.class, characterName));
+	}
+
+	private static boolean isPending(String characterName) {
+		return ShardContext.call(null, () -> jdbcTemplate.queryForObject(
+				"SELECT pending_since IS NOT NULL FROM character_directory WHERE character_name = ?",
+				Boolean.class, characterName));
+	}
+}